@@ -0,0 +1,83 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares images per second for batched and sequential CPU inference on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchInferenceBenchmark {
+
+    private static final String TAG = "BatchInferenceBenchmark";
+    private static final int IMAGE_COUNT = 32;
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void batchedVersusSequential() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // A private engine, so the prediction cache does not answer the repeated rounds
+        InferenceEngine engine = InferenceEngine.create(context, ModelVariant.fromConfig(BuildConfig.MODEL_VARIANT));
+        List<Bitmap> images = syntheticImages(IMAGE_COUNT);
+
+        // Warm both paths so neither pays for model loading or tensor allocation
+        engine.classify(images.get(0));
+        engine.classifyBatch(images.subList(0, 4));
+
+        long sequentialMs = 0;
+        long batchedMs = 0;
+        List<ClassificationResult> sequential = new ArrayList<>();
+        List<ClassificationResult> batched = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            sequential.clear();
+            long start = SystemClock.elapsedRealtime();
+            for (Bitmap image : images) {
+                sequential.add(engine.classify(image));
+            }
+            sequentialMs += SystemClock.elapsedRealtime() - start;
+
+            start = SystemClock.elapsedRealtime();
+            batched = engine.classifyBatch(images);
+            batchedMs += SystemClock.elapsedRealtime() - start;
+        }
+
+        double sequentialRate = IMAGE_COUNT * ROUNDS * 1000.0 / Math.max(1, sequentialMs);
+        double batchedRate = IMAGE_COUNT * ROUNDS * 1000.0 / Math.max(1, batchedMs);
+        Log.i(TAG, String.format("sequential=%.1f img/s, batched=%.1f img/s, speedup=%.2fx",
+                sequentialRate, batchedRate, batchedRate / sequentialRate));
+
+        engine.close();
+        assertEquals(IMAGE_COUNT, batched.size());
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            assertEquals(sequential.get(i).getTopIndex(), batched.get(i).getTopIndex());
+        }
+    }
+
+    private static List<Bitmap> syntheticImages(int count) {
+        Random random = new Random(1);
+        int size = InferenceEngine.INPUT_SIZE;
+        int[] pixels = new int[size * size];
+        List<Bitmap> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            for (int p = 0; p < pixels.length; p++) {
+                pixels[p] = 0xFF000000 | random.nextInt(0xFFFFFF);
+            }
+            images.add(Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888));
+        }
+        return images;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.maizedisease;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that returned bitmaps are handed out again, that the pool never holds more than its
+ * budget, and that memory pressure empties it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapPoolTest {
+
+    private static final int SIDE = 64;
+    private static final long SIDE_BYTES = 4L * SIDE * SIDE;
+
+    @Test
+    public void get_reusesReturnedBitmap() {
+        BitmapPool pool = new BitmapPool(SIDE_BYTES * 4);
+        Bitmap first = pool.get(SIDE, SIDE);
+        first.eraseColor(0xFF00FF00);
+        pool.put(first);
+
+        Bitmap second = pool.get(SIDE / 2, SIDE / 2);
+        assertSame(first, second);
+        assertEquals(SIDE / 2, second.getWidth());
+        assertEquals(0, second.getPixel(0, 0));
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void put_evictsBeyondBudget() {
+        BitmapPool pool = new BitmapPool(SIDE_BYTES * 2);
+        Bitmap[] bitmaps = new Bitmap[3];
+        for (int i = 0; i < bitmaps.length; i++) {
+            bitmaps[i] = pool.get(SIDE, SIDE);
+        }
+        for (Bitmap bitmap : bitmaps) {
+            pool.put(bitmap);
+        }
+
+        assertTrue(pool.getFreeBytes() <= pool.getMaxBytes());
+        assertTrue(bitmaps[0].isRecycled());
+        assertFalse(bitmaps[2].isRecycled());
+    }
+
+    @Test
+    public void put_recyclesImmutableBitmap() {
+        BitmapPool pool = new BitmapPool(SIDE_BYTES * 4);
+        Bitmap immutable = Bitmap.createBitmap(SIDE, SIDE, Bitmap.Config.ARGB_8888).copy(Bitmap.Config.ARGB_8888, false);
+        pool.put(immutable);
+
+        assertTrue(immutable.isRecycled());
+        assertEquals(0, pool.getFreeBytes());
+    }
+
+    @Test
+    public void onTrimMemory_clearsInBackground() {
+        BitmapPool pool = new BitmapPool(SIDE_BYTES * 4);
+        pool.put(pool.get(SIDE, SIDE));
+        pool.put(pool.get(SIDE, SIDE));
+        assertTrue(pool.getFreeBytes() > 0);
+
+        pool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertTrue(pool.getFreeBytes() > 0);
+
+        pool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, pool.getFreeBytes());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the local chat store returns a room's newest messages in order, merges repeated
+ * messages by key, and keeps each room within its retention limit.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatStoreTest {
+
+    private static final String ROOM = "alice_bob";
+    private static final String OTHER_ROOM = "alice_carol";
+    private static final int MAX_PER_ROOM = 100;
+
+    private ChatStore store;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        store = new ChatStore(context, null, MAX_PER_ROOM);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void loadNewest_returnsNewestInKeyOrder() {
+        store.putAll(ROOM, messages(0, 30));
+
+        Map<String, MessageModel> page = store.loadNewest(ROOM, 10);
+
+        assertEquals(10, page.size());
+        ArrayList<String> keys = new ArrayList<>(page.keySet());
+        assertEquals(key(20), keys.get(0));
+        assertEquals(key(29), keys.get(9));
+        assertEquals("message 29", page.get(key(29)).getMessage());
+        assertEquals(key(29), page.get(key(29)).getMsgid());
+    }
+
+    @Test
+    public void putAll_mergesByKey() {
+        store.putAll(ROOM, messages(0, 10));
+        Map<String, MessageModel> edit = new LinkedHashMap<>();
+        edit.put(key(3), new MessageModel(key(3), "alice", "edited"));
+
+        store.putAll(ROOM, edit);
+        store.putAll(ROOM, messages(5, 15));
+
+        assertEquals(15, store.count(ROOM));
+        assertEquals("edited", store.loadNewest(ROOM, 15).get(key(3)).getMessage());
+    }
+
+    @Test
+    public void putAll_keepsOnlyNewestPerRoom() {
+        store.putAll(OTHER_ROOM, messages(0, 5));
+
+        store.putAll(ROOM, messages(0, MAX_PER_ROOM + 50));
+
+        assertEquals(MAX_PER_ROOM, store.count(ROOM));
+        assertEquals(key(50), store.loadNewest(ROOM, MAX_PER_ROOM).keySet().iterator().next());
+        assertEquals(5, store.count(OTHER_ROOM));
+    }
+
+    @Test
+    public void legacyUuidKeys_countAsOlderThanPushKeys() {
+        Map<String, MessageModel> legacy = new LinkedHashMap<>();
+        for (int i = 0; i < MAX_PER_ROOM; i++) {
+            String uuid = String.format(Locale.US, "f%07x-0000-4000-8000-000000000000", i);
+            legacy.put(uuid, new MessageModel(uuid, "alice", "legacy " + i));
+        }
+        store.putAll(ROOM, legacy);
+
+        store.putAll(ROOM, messages(0, 10));
+
+        // Retention drops legacy messages, not the newer push-keyed ones
+        assertEquals(MAX_PER_ROOM, store.count(ROOM));
+        Map<String, MessageModel> page = store.loadNewest(ROOM, 10);
+        assertEquals(new ArrayList<>(messages(0, 10).keySet()), new ArrayList<>(page.keySet()));
+    }
+
+    @Test
+    public void loadNewest_keepsMsgidOfMigratedMessage() {
+        String uuid = "0f8e7a52-3c1b-4d2e-9a8b-1c2d3e4f5a6b";
+        String migratedKey = ChatTimeline.orderKey(uuid);
+        Map<String, MessageModel> migrated = new LinkedHashMap<>();
+        migrated.put(migratedKey, new MessageModel(uuid, "alice", "from a legacy room"));
+
+        store.putAll(ROOM, migrated);
+
+        MessageModel loaded = store.loadNewest(ROOM, 10).get(migratedKey);
+        assertTrue(migratedKey.startsWith(ChatTimeline.LEGACY_PREFIX));
+        // The same msgid the server copy carries, so the list treats them as one item
+        assertEquals(uuid, loaded.getMsgid());
+    }
+
+    @Test
+    public void loadNewest_unknownRoomIsEmpty() {
+        assertTrue(store.loadNewest("nobody_here", 10).isEmpty());
+    }
+
+    private static Map<String, MessageModel> messages(int from, int to) {
+        Map<String, MessageModel> messages = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            messages.put(key(i), new MessageModel(key(i), i % 2 == 0 ? "alice" : "bob", "message " + i));
+        }
+        return messages;
+    }
+
+    private static String key(int i) {
+        return String.format(Locale.US, "-K%06d", i);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures decode time and memory of ImageLoader against a full-resolution decode on a large synthetic JPEG.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageLoaderTest {
+
+    private static final String TAG = "ImageLoaderTest";
+    private static final int SOURCE_WIDTH = 8000;
+    private static final int SOURCE_HEIGHT = 6000;
+
+    private static File jpeg;
+
+    @BeforeClass
+    public static void createLargeJpeg() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        jpeg = new File(context.getCacheDir(), "synthetic_48mp.jpg");
+        // RGB_565 keeps the source at half the memory of the 48 MP ARGB decode it stands in for
+        Bitmap source = Bitmap.createBitmap(SOURCE_WIDTH, SOURCE_HEIGHT, Bitmap.Config.RGB_565);
+        Paint paint = new Paint();
+        paint.setShader(new LinearGradient(0, 0, SOURCE_WIDTH, SOURCE_HEIGHT, 0xFF1B5E20, 0xFFC5E1A5, Shader.TileMode.MIRROR));
+        new Canvas(source).drawRect(0, 0, SOURCE_WIDTH, SOURCE_HEIGHT, paint);
+        try (FileOutputStream out = new FileOutputStream(jpeg)) {
+            source.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        }
+        source.recycle();
+    }
+
+    @AfterClass
+    public static void deleteJpeg() {
+        jpeg.delete();
+    }
+
+    @Test
+    public void load_decodesNearModelResolution() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        long nativeBefore = Debug.getNativeHeapAllocatedSize();
+        long start = SystemClock.elapsedRealtime();
+        ImageLoader.LoadedImage image = ImageLoader.load(context.getContentResolver(), Uri.fromFile(jpeg),
+                BitmapPool.getInstance(context));
+        long loaderMs = SystemClock.elapsedRealtime() - start;
+        long loaderNativeGrowth = Debug.getNativeHeapAllocatedSize() - nativeBefore;
+        long retainedBytes = image.preview.getAllocationByteCount() + image.modelInput.getAllocationByteCount();
+
+        assertEquals(SOURCE_WIDTH, image.sourceWidth);
+        assertEquals(SOURCE_HEIGHT, image.sourceHeight);
+        assertTrue(Math.max(image.preview.getWidth(), image.preview.getHeight()) <= ImageLoader.PREVIEW_MAX_SIDE);
+        assertEquals(InferenceEngine.INPUT_SIZE, image.modelInput.getWidth());
+        assertEquals(InferenceEngine.INPUT_SIZE, image.modelInput.getHeight());
+
+        // What MediaStore.Images.Media.getBitmap used to hold before compressing
+        long fullDecodeBytes = (long) SOURCE_WIDTH * SOURCE_HEIGHT * 4;
+        assertTrue("retained " + retainedBytes + " bytes", retainedBytes * 10 < fullDecodeBytes);
+
+        start = SystemClock.elapsedRealtime();
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(jpeg.getPath(), bounds);
+        long boundsMs = SystemClock.elapsedRealtime() - start;
+
+        Log.i(TAG, "loader=" + loaderMs + "ms, bounds=" + boundsMs + "ms, retained=" + retainedBytes / 1024
+                + "KB, nativeGrowth=" + loaderNativeGrowth / 1024 + "KB, fullDecode=" + fullDecodeBytes / 1024 + "KB");
+    }
+
+    @Test
+    public void calculateInSampleSize_keepsLongSideAboveTarget() {
+        assertEquals(1, ImageLoader.calculateInSampleSize(1000, 800, 1024));
+        assertEquals(4, ImageLoader.calculateInSampleSize(SOURCE_WIDTH, SOURCE_HEIGHT, 1024));
+        assertEquals(2, ImageLoader.calculateInSampleSize(3000, 4000, 1024));
+    }
+}
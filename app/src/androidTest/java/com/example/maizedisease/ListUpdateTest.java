@@ -0,0 +1,175 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the chat and user lists are updated by diffs rather than full rebinds, and that a
+ * burst of updates reaches the adapter once per frame.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ListUpdateTest {
+
+    private static final int ROOM_SIZE = 500;
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    @Test
+    public void messageAdapter_appendNotifiesOnlyTheNewMessage() throws Exception {
+        MessageAdapter adapter = onMain(() -> new MessageAdapter(context, "me"));
+        RecordingObserver observer = new RecordingObserver();
+        onMain(() -> {
+            adapter.registerAdapterDataObserver(observer);
+            return null;
+        });
+        ChatTimeline timeline = new ChatTimeline();
+        for (int i = 0; i < ROOM_SIZE; i++) {
+            String key = String.format(Locale.US, "-K%06d", i);
+            timeline.add(key, new MessageModel(key, i % 2 == 0 ? "me" : "them", "message " + i));
+        }
+
+        submit(adapter, timeline.snapshot());
+        assertEquals(1, observer.events.size());
+        assertEquals("inserted 0+" + ROOM_SIZE, observer.events.get(0));
+
+        timeline.add("-K999999", new MessageModel("-K999999", "them", "new message"));
+        submit(adapter, timeline.snapshot());
+        assertEquals(2, observer.events.size());
+        assertEquals("inserted " + ROOM_SIZE + "+1", observer.events.get(1));
+        assertFalse(observer.fullReload);
+    }
+
+    @Test
+    public void messageAdapter_editRebindsOnlyThatMessage() throws Exception {
+        MessageAdapter adapter = onMain(() -> new MessageAdapter(context, "me"));
+        RecordingObserver observer = new RecordingObserver();
+        onMain(() -> {
+            adapter.registerAdapterDataObserver(observer);
+            return null;
+        });
+        ChatTimeline timeline = new ChatTimeline();
+        timeline.add("a", new MessageModel("a", "me", "first"));
+        timeline.add("b", new MessageModel("b", "me", "second"));
+        submit(adapter, timeline.snapshot());
+        long firstId = adapter.getItemId(0);
+
+        timeline.change("a", new MessageModel("a", "me", "edited"));
+        submit(adapter, timeline.snapshot());
+
+        assertEquals(2, observer.events.size());
+        assertEquals("changed 0+1", observer.events.get(1));
+        assertEquals(firstId, adapter.getItemId(0));
+        assertNotEquals(firstId, adapter.getItemId(1));
+    }
+
+    @Test
+    public void userAdapter_identicalSnapshotNotifiesNothing() throws Exception {
+        UserAdapter adapter = onMain(() -> new UserAdapter(context));
+        RecordingObserver observer = new RecordingObserver();
+        onMain(() -> {
+            adapter.registerAdapterDataObserver(observer);
+            return null;
+        });
+        List<UserModel> users = new ArrayList<>();
+        for (int i = 0; i < ROOM_SIZE; i++) {
+            users.add(new UserModel("user" + i, "User " + i, "user" + i + "@example.com", null, "farmer"));
+        }
+
+        submit(adapter, new ArrayList<>(users));
+        submit(adapter, new ArrayList<>(users));
+
+        assertEquals(1, observer.events.size());
+        assertFalse(observer.fullReload);
+    }
+
+    @Test
+    public void frameBatcher_runsOncePerFrame() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch ran = new CountDownLatch(1);
+        FrameBatcher batcher = new FrameBatcher(() -> {
+            runs.incrementAndGet();
+            ran.countDown();
+        });
+
+        onMain(() -> {
+            for (int i = 0; i < ROOM_SIZE; i++) {
+                batcher.schedule();
+            }
+            return null;
+        });
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(1, runs.get());
+    }
+
+    private static <T> void submit(ListAdapter<T, ?> adapter, List<T> list)
+            throws InterruptedException {
+        CountDownLatch committed = new CountDownLatch(1);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> adapter.submitList(list, committed::countDown));
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+    }
+
+    private static <T> T onMain(Callable<T> callable) throws Exception {
+        List<T> result = new ArrayList<>(1);
+        Exception[] error = new Exception[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            try {
+                result.add(callable.call());
+            } catch (Exception e) {
+                error[0] = e;
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        return result.get(0);
+    }
+
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+        final List<String> events = new ArrayList<>();
+        boolean fullReload;
+
+        @Override
+        public void onChanged() {
+            fullReload = true;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("inserted " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            events.add("changed " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("removed " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            events.add("moved " + fromPosition + "->" + toPosition);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.support.common.FileUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares how long it takes to stand up several interpreters, and what they cost in resident
+ * memory, when each loads its own copy of the model (the old MaizeModel.newInstance() behaviour)
+ * versus sharing one mapping through SharedModel. The report is written to the app's external
+ * files dir as model_loading_report.txt.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ModelLoadingBenchmark {
+
+    private static final String TAG = "ModelLoadingBenchmark";
+    private static final int INTERPRETERS = 4;
+
+    private interface ModelSource {
+        ByteBuffer load() throws IOException;
+    }
+
+    @Test
+    public void perInterpreterVersusShared() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        String asset = ModelVariant.FLOAT32.assetName;
+
+        String mappedEach = measure("mapped per interpreter", () -> FileUtil.loadMappedFile(context, asset));
+        String copiedEach = measure("copied per interpreter", () -> copyAsset(context, asset));
+        String shared = measure("shared mapping", () -> SharedModel.fromAsset(context, asset).buffer());
+
+        SharedModel model = SharedModel.fromAsset(context, asset);
+        assertSame(model, SharedModel.fromAsset(context, asset));
+
+        File reportFile = new File(context.getExternalFilesDir(null), "model_loading_report.txt");
+        try (PrintWriter report = new PrintWriter(new FileWriter(reportFile))) {
+            report.printf(Locale.US, "model=%s %s%n", asset, model.describe());
+            report.println(mappedEach);
+            report.println(copiedEach);
+            report.println(shared);
+        }
+        Log.i(TAG, "Report written to " + reportFile);
+    }
+
+    private static String measure(String name, ModelSource source) throws IOException {
+        Runtime.getRuntime().gc();
+        long[] rssBefore = readRssKb();
+        List<Interpreter> interpreters = new ArrayList<>();
+        long loadMs = 0;
+        long createMs = 0;
+        try {
+            for (int i = 0; i < INTERPRETERS; i++) {
+                long start = SystemClock.elapsedRealtime();
+                ByteBuffer model = source.load();
+                loadMs += SystemClock.elapsedRealtime() - start;
+
+                start = SystemClock.elapsedRealtime();
+                interpreters.add(new Interpreter(model, new Interpreter.Options().setNumThreads(1)));
+                createMs += SystemClock.elapsedRealtime() - start;
+            }
+            long[] rssAfter = readRssKb();
+            String line = String.format(Locale.US,
+                    "%-24s interpreters=%d load=%dms create=%dms rssDelta=%dKB (anon %+dKB, file %+dKB)",
+                    name, INTERPRETERS, loadMs, createMs, rssAfter[0] - rssBefore[0],
+                    rssAfter[1] - rssBefore[1], rssAfter[2] - rssBefore[2]);
+            Log.i(TAG, line);
+            return line;
+        } finally {
+            for (Interpreter interpreter : interpreters) {
+                interpreter.close();
+            }
+        }
+    }
+
+    // The fallback SharedModel uses when the asset is compressed
+    private static ByteBuffer copyAsset(Context context, String asset) throws IOException {
+        try (InputStream in = context.getAssets().open(asset)) {
+            byte[] bytes = new byte[in.available()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(read).order(ByteOrder.nativeOrder());
+            buffer.put(bytes, 0, read);
+            buffer.rewind();
+            return buffer;
+        }
+    }
+
+    // VmRSS, RssAnon and RssFile in KB
+    private static long[] readRssKb() throws IOException {
+        long[] rss = new long[3];
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    rss[0] = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                } else if (line.startsWith("RssAnon:")) {
+                    rss[1] = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                } else if (line.startsWith("RssFile:")) {
+                    rss[2] = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        }
+        return rss;
+    }
+}
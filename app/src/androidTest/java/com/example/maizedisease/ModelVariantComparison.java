@@ -0,0 +1,162 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Runs the float and quantized models over the same labeled images and reports accuracy agreement,
+ * per-class accuracy, load time, inference latency and resident memory.
+ *
+ * Push images to the app's external files dir as eval/&lt;label&gt;/*.jpg before running; the report is
+ * written next to them as eval/variant_report.txt.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ModelVariantComparison {
+
+    private static final String TAG = "ModelVariantComparison";
+
+    private static class Sample {
+        final String label;
+        final File file;
+
+        Sample(String label, File file) {
+            this.label = label;
+            this.file = file;
+        }
+    }
+
+    private static class VariantRun {
+        ModelVariant variant;
+        long loadMs;
+        long totalInferenceMs;
+        long rssDeltaKb;
+        final List<ClassificationResult> results = new ArrayList<>();
+    }
+
+    @Test
+    public void compareVariants() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File evalDir = new File(context.getExternalFilesDir(null), "eval");
+        List<Sample> samples = listSamples(evalDir);
+        Assume.assumeFalse("No labeled images in " + evalDir, samples.isEmpty());
+
+        VariantRun floatRun = run(context, ModelVariant.FLOAT32, samples);
+        VariantRun quantRun = run(context, ModelVariant.QUANTIZED, samples);
+        Assume.assumeTrue("Quantized model is not bundled", quantRun.variant == ModelVariant.QUANTIZED);
+
+        TreeMap<String, int[]> perClass = new TreeMap<>();
+        int agree = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            String label = samples.get(i).label;
+            ClassificationResult f = floatRun.results.get(i);
+            ClassificationResult q = quantRun.results.get(i);
+            int[] counts = perClass.get(label);
+            if (counts == null) {
+                // total, float correct, quantized correct
+                counts = new int[3];
+                perClass.put(label, counts);
+            }
+            counts[0]++;
+            if (label.equalsIgnoreCase(f.getTopLabel())) {
+                counts[1]++;
+            }
+            if (label.equalsIgnoreCase(q.getTopLabel())) {
+                counts[2]++;
+            }
+            if (f.getTopIndex() == q.getTopIndex()) {
+                agree++;
+            }
+        }
+
+        File reportFile = new File(evalDir, "variant_report.txt");
+        try (PrintWriter report = new PrintWriter(new FileWriter(reportFile))) {
+            report.printf(Locale.US, "images=%d top1 agreement=%.2f%%%n", samples.size(), 100.0 * agree / samples.size());
+            for (VariantRun run : new VariantRun[]{floatRun, quantRun}) {
+                report.printf(Locale.US, "%s load=%dms latency=%.1fms rssDelta=%dKB%n", run.variant, run.loadMs,
+                        (double) run.totalInferenceMs / samples.size(), run.rssDeltaKb);
+            }
+            for (String label : perClass.keySet()) {
+                int[] counts = perClass.get(label);
+                double floatAccuracy = 100.0 * counts[1] / counts[0];
+                double quantAccuracy = 100.0 * counts[2] / counts[0];
+                report.printf(Locale.US, "%s n=%d float=%.1f%% quantized=%.1f%% delta=%+.1f%n",
+                        label, counts[0], floatAccuracy, quantAccuracy, quantAccuracy - floatAccuracy);
+            }
+        }
+        Log.i(TAG, "Report written to " + reportFile);
+    }
+
+    private static VariantRun run(Context context, ModelVariant variant, List<Sample> samples) throws IOException {
+        VariantRun run = new VariantRun();
+        long rssBefore = readRssKb();
+        InferenceEngine engine = InferenceEngine.create(context, variant);
+        try {
+            long start = SystemClock.elapsedRealtime();
+            run.variant = engine.getVariant();
+            run.loadMs = SystemClock.elapsedRealtime() - start;
+
+            for (Sample sample : samples) {
+                Bitmap bitmap = BitmapFactory.decodeFile(sample.file.getPath());
+                start = SystemClock.elapsedRealtime();
+                run.results.add(engine.classify(bitmap));
+                run.totalInferenceMs += SystemClock.elapsedRealtime() - start;
+                bitmap.recycle();
+            }
+            run.rssDeltaKb = readRssKb() - rssBefore;
+        } finally {
+            engine.close();
+        }
+        return run;
+    }
+
+    private static List<Sample> listSamples(File evalDir) {
+        List<Sample> samples = new ArrayList<>();
+        File[] labelDirs = evalDir.listFiles(File::isDirectory);
+        if (labelDirs == null) {
+            return samples;
+        }
+        for (File labelDir : labelDirs) {
+            File[] images = labelDir.listFiles();
+            if (images == null) {
+                continue;
+            }
+            for (File image : images) {
+                samples.add(new Sample(labelDir.getName(), image));
+            }
+        }
+        return samples;
+    }
+
+    private static long readRssKb() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        }
+        return 0;
+    }
+}
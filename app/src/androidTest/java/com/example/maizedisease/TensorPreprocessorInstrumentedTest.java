@@ -0,0 +1,93 @@
+package com.example.maizedisease;
+
+import android.graphics.Bitmap;
+import android.os.Debug;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.support.image.TensorImage;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks TensorPreprocessor against the createScaledBitmap and TensorImage(FLOAT32) path it replaced,
+ * and that preprocess() allocates nothing per image once warmed up, scale step included.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TensorPreprocessorInstrumentedTest {
+
+    private static final int SIZE = TensorPreprocessor.INPUT_SIZE;
+
+    @Test
+    public void preprocess_modelSizedBitmap_matchesTensorImage() {
+        Bitmap bitmap = randomBitmap(SIZE, SIZE, 42);
+
+        ByteBuffer actual = new TensorPreprocessor().preprocess(bitmap);
+        TensorImage expected = new TensorImage(DataType.FLOAT32);
+        expected.load(bitmap);
+        ByteBuffer expectedBuffer = expected.getBuffer();
+        expectedBuffer.rewind();
+
+        assertEquals(expectedBuffer.remaining(), actual.remaining());
+        assertEquals(0, expectedBuffer.compareTo(actual));
+    }
+
+    @Test
+    public void preprocess_largerBitmap_matchesScaledTensorImage() {
+        Bitmap bitmap = randomBitmap(1000, 750, 7);
+
+        FloatBuffer actual = new TensorPreprocessor().preprocess(bitmap).asFloatBuffer();
+        TensorImage expected = new TensorImage(DataType.FLOAT32);
+        expected.load(Bitmap.createScaledBitmap(bitmap, SIZE, SIZE, true));
+        FloatBuffer expectedBuffer = expected.getBuffer().asFloatBuffer();
+
+        assertEquals(expectedBuffer.remaining(), actual.remaining());
+        float maxDifference = 0f;
+        while (actual.hasRemaining()) {
+            maxDifference = Math.max(maxDifference, Math.abs(actual.get() - expectedBuffer.get()));
+        }
+        // Both are bilinear draws; allow Skia to round a channel differently between the two
+        assertTrue("max channel difference " + maxDifference, maxDifference <= 1f);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void preprocess_doesNotAllocateAfterWarmUp() {
+        TensorPreprocessor preprocessor = new TensorPreprocessor();
+        Bitmap bitmap = randomBitmap(1000, 750, 3);
+        int iterations = 50;
+        for (int i = 0; i < iterations; i++) {
+            preprocessor.preprocess(bitmap);
+        }
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            for (int i = 0; i < iterations; i++) {
+                preprocessor.preprocess(bitmap);
+            }
+            int allocations = Debug.getThreadAllocCount();
+            // Fewer allocations than calls means nothing is allocated per image
+            assertTrue("allocated " + allocations + " objects", allocations < iterations);
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private static Bitmap randomBitmap(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            // Opaque, since TensorImage drops alpha and premultiplication would change the channels
+            pixels[i] = random.nextInt() | 0xFF000000;
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.maizedisease;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Mutable ARGB_8888 bitmaps kept for reuse across decodes, scales and tiles, up to a byte budget.
+// get() hands out a bitmap reconfigured to the requested size; put() returns it once nothing draws
+// it any more. Least recently returned bitmaps are evicted first, and everything is dropped when
+// the system reports memory pressure.
+public class BitmapPool {
+
+    private static final String TAG = "BitmapPool";
+    private static final Bitmap.Config CONFIG = Bitmap.Config.ARGB_8888;
+    // Share of the app's heap class the pool may hold
+    private static final int BUDGET_DIVISOR = 8;
+    private static final int LOW_RAM_BUDGET_DIVISOR = 16;
+
+    private static BitmapPool instance;
+
+    private final long maxBytes;
+    // Access order, so iteration starts at the bitmap returned longest ago
+    private final LinkedHashMap<Bitmap, Integer> free = new LinkedHashMap<>(16, 0.75f, true);
+    // Handed out and not returned yet; weak so a bitmap that is simply dropped does not leak
+    private final WeakHashMap<Bitmap, Boolean> outstanding = new WeakHashMap<>();
+    private long freeBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public static synchronized BitmapPool getInstance(Context context) {
+        if (instance == null) {
+            ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            int divisor = activityManager.isLowRamDevice() ? LOW_RAM_BUDGET_DIVISOR : BUDGET_DIVISOR;
+            instance = new BitmapPool(activityManager.getMemoryClass() * 1024L * 1024L / divisor);
+        }
+        return instance;
+    }
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // A mutable bitmap of exactly width x height; contents are cleared
+    public Bitmap get(int width, int height) {
+        Bitmap bitmap = take(bytesFor(width, height));
+        if (bitmap != null) {
+            bitmap.reconfigure(width, height, CONFIG);
+            bitmap.eraseColor(0);
+        } else {
+            bitmap = Bitmap.createBitmap(width, height, CONFIG);
+        }
+        synchronized (this) {
+            outstanding.put(bitmap, Boolean.TRUE);
+        }
+        return bitmap;
+    }
+
+    // A bitmap with room for width x height, for BitmapFactory.Options.inBitmap, or null on a miss.
+    // The decoder reconfigures it; give it back with put() if the decode does not use it.
+    public Bitmap getForDecode(int width, int height) {
+        Bitmap bitmap = take(bytesFor(width, height));
+        if (bitmap != null) {
+            synchronized (this) {
+                outstanding.put(bitmap, Boolean.TRUE);
+            }
+        }
+        return bitmap;
+    }
+
+    // Takes ownership: the caller must not draw or read the bitmap afterwards
+    public void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        List<Bitmap> evicted = new ArrayList<>();
+        synchronized (this) {
+            outstanding.remove(bitmap);
+            if (free.containsKey(bitmap)) {
+                return;
+            }
+            int size = bitmap.getAllocationByteCount();
+            if (!bitmap.isMutable() || bitmap.getConfig() != CONFIG || size > maxBytes) {
+                evicted.add(bitmap);
+            } else {
+                free.put(bitmap, size);
+                freeBytes += size;
+                trimTo(maxBytes, evicted);
+            }
+        }
+        recycleAll(evicted);
+    }
+
+    public void onTrimMemory(int level) {
+        long target;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            target = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            target = maxBytes / 2;
+        } else {
+            return;
+        }
+        List<Bitmap> evicted = new ArrayList<>();
+        synchronized (this) {
+            trimTo(target, evicted);
+        }
+        recycleAll(evicted);
+        Log.d(TAG, "Trimmed for level " + level + ": " + getStats());
+    }
+
+    public void clear() {
+        List<Bitmap> evicted = new ArrayList<>();
+        synchronized (this) {
+            trimTo(0, evicted);
+        }
+        recycleAll(evicted);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getFreeBytes() {
+        return freeBytes;
+    }
+
+    public synchronized long getBytesInUse() {
+        long bytes = 0;
+        for (Bitmap bitmap : outstanding.keySet()) {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bytes += bitmap.getAllocationByteCount();
+            }
+        }
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public String getStats() {
+        long inUse = getBytesInUse();
+        synchronized (this) {
+            return String.format(Locale.US, "hits=%d misses=%d evictions=%d pooled=%dKB/%dKB (%d bitmaps) inUse=%dKB",
+                    hits, misses, evictions, freeBytes / 1024, maxBytes / 1024, free.size(), inUse / 1024);
+        }
+    }
+
+    // Smallest free bitmap that is large enough, so big bitmaps stay available for big requests
+    private synchronized Bitmap take(long bytes) {
+        Bitmap best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<Bitmap, Integer> entry : free.entrySet()) {
+            int size = entry.getValue();
+            if (size >= bytes && size < bestSize) {
+                best = entry.getKey();
+                bestSize = size;
+            }
+        }
+        if (best == null) {
+            misses++;
+            return null;
+        }
+        free.remove(best);
+        freeBytes -= bestSize;
+        hits++;
+        return best;
+    }
+
+    private void trimTo(long targetBytes, List<Bitmap> evicted) {
+        Iterator<Map.Entry<Bitmap, Integer>> iterator = free.entrySet().iterator();
+        while (freeBytes > targetBytes && iterator.hasNext()) {
+            Map.Entry<Bitmap, Integer> entry = iterator.next();
+            iterator.remove();
+            freeBytes -= entry.getValue();
+            evictions++;
+            evicted.add(entry.getKey());
+        }
+    }
+
+    // Outside the lock: recycling frees native memory and can take a moment
+    private static void recycleAll(List<Bitmap> bitmaps) {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+    }
+
+    private static long bytesFor(int width, int height) {
+        return 4L * width * height;
+    }
+}
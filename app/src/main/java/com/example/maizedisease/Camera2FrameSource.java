@@ -0,0 +1,221 @@
+package com.example.maizedisease;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Back camera frames as YUV_420_888 through an ImageReader, optionally also drawing to a preview surface.
+// Each frame carries the clockwise rotation that turns it upright for the display, from the sensor
+// orientation and the display rotation at start().
+// Callers must hold the CAMERA permission before start(). The device, session and reader are only
+// touched on the camera thread; stop() marks the source closed and releases them there, and the
+// thread stays up until a pending open has completed, so a late onOpened still closes the device.
+public class Camera2FrameSource implements FrameSource {
+
+    private static final String TAG = "Camera2FrameSource";
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    // One frame being classified, one waiting, one being filled by the camera, one spare
+    private static final int MAX_IMAGES = 4;
+
+    private final CameraManager cameraManager;
+    private final WindowManager windowManager;
+    private final Surface previewSurface;
+    private HandlerThread cameraThread;
+    private Handler cameraHandler;
+    private volatile boolean closed;
+    // Camera thread only, apart from start() setting them up before the thread can see them
+    private boolean opening;
+    private ImageReader imageReader;
+    private CameraDevice camera;
+    private CameraCaptureSession session;
+    private int rotationDegrees;
+
+    public Camera2FrameSource(Context context, Surface previewSurface) {
+        this.cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        this.windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        this.previewSurface = previewSurface;
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public void start(Listener listener) {
+        cameraThread = new HandlerThread("camera");
+        cameraThread.start();
+        cameraHandler = new Handler(cameraThread.getLooper());
+
+        imageReader = ImageReader.newInstance(FRAME_WIDTH, FRAME_HEIGHT, ImageFormat.YUV_420_888, MAX_IMAGES);
+        imageReader.setOnImageAvailableListener(reader -> {
+            Image image;
+            try {
+                image = reader.acquireLatestImage();
+            } catch (IllegalStateException e) {
+                // Every buffer is still held downstream; skip this frame
+                return;
+            }
+            if (image != null) {
+                listener.onFrame(toFrame(image, rotationDegrees));
+            }
+        }, cameraHandler);
+
+        opening = true;
+        try {
+            String cameraId = backCameraId();
+            rotationDegrees = frameRotation(cameraId);
+            cameraManager.openCamera(cameraId, new CameraDevice.StateCallback() {
+                @Override
+                public void onOpened(@NonNull CameraDevice device) {
+                    opening = false;
+                    if (closed) {
+                        // stop() ran while the camera was still opening
+                        device.close();
+                        release();
+                        return;
+                    }
+                    camera = device;
+                    startSession();
+                }
+
+                @Override
+                public void onDisconnected(@NonNull CameraDevice device) {
+                    opening = false;
+                    device.close();
+                    camera = null;
+                    if (closed) {
+                        release();
+                    }
+                }
+
+                @Override
+                public void onError(@NonNull CameraDevice device, int error) {
+                    Log.e(TAG, "Camera error " + error);
+                    opening = false;
+                    device.close();
+                    camera = null;
+                    if (closed) {
+                        release();
+                    }
+                }
+            }, cameraHandler);
+        } catch (CameraAccessException e) {
+            opening = false;
+            Log.e(TAG, "Error opening camera", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (closed || cameraHandler == null) {
+            return;
+        }
+        closed = true;
+        cameraHandler.post(this::release);
+    }
+
+    // Camera thread only
+    private void release() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+        if (camera != null) {
+            camera.close();
+            camera = null;
+        }
+        if (imageReader != null) {
+            imageReader.close();
+            imageReader = null;
+        }
+        // Still opening: onOpened or onError will come back here once the device exists
+        if (!opening && cameraThread != null) {
+            cameraThread.quitSafely();
+            cameraThread = null;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void startSession() {
+        List<Surface> targets = new ArrayList<>();
+        targets.add(imageReader.getSurface());
+        if (previewSurface != null) {
+            targets.add(previewSurface);
+        }
+        try {
+            camera.createCaptureSession(targets, new CameraCaptureSession.StateCallback() {
+                @Override
+                public void onConfigured(@NonNull CameraCaptureSession captureSession) {
+                    if (closed || camera == null) {
+                        captureSession.close();
+                        return;
+                    }
+                    session = captureSession;
+                    try {
+                        CaptureRequest.Builder request = camera.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+                        for (Surface target : targets) {
+                            request.addTarget(target);
+                        }
+                        request.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+                        session.setRepeatingRequest(request.build(), null, cameraHandler);
+                    } catch (CameraAccessException e) {
+                        Log.e(TAG, "Error starting capture", e);
+                    }
+                }
+
+                @Override
+                public void onConfigureFailed(@NonNull CameraCaptureSession captureSession) {
+                    Log.e(TAG, "Capture session configuration failed");
+                }
+            }, cameraHandler);
+        } catch (CameraAccessException e) {
+            Log.e(TAG, "Error creating capture session", e);
+        }
+    }
+
+    private String backCameraId() throws CameraAccessException {
+        String[] ids = cameraManager.getCameraIdList();
+        for (String id : ids) {
+            Integer facing = cameraManager.getCameraCharacteristics(id).get(CameraCharacteristics.LENS_FACING);
+            if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
+                return id;
+            }
+        }
+        if (ids.length == 0) {
+            throw new CameraAccessException(CameraAccessException.CAMERA_ERROR, "No camera available");
+        }
+        return ids[0];
+    }
+
+    // Back camera: the sensor's clockwise offset less however far the display is turned
+    @SuppressWarnings("deprecation")
+    private int frameRotation(String cameraId) throws CameraAccessException {
+        Integer sensor = cameraManager.getCameraCharacteristics(cameraId).get(CameraCharacteristics.SENSOR_ORIENTATION);
+        int display = windowManager.getDefaultDisplay().getRotation() * 90;
+        return ((sensor != null ? sensor : 0) - display + 360) % 360;
+    }
+
+    private static CameraFrame toFrame(Image image, int rotationDegrees) {
+        Image.Plane[] planes = image.getPlanes();
+        return new CameraFrame(image.getWidth(), image.getHeight(),
+                planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[0].getRowStride(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                rotationDegrees, image.getTimestamp(), image::close);
+    }
+}
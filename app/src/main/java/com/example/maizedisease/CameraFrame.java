@@ -0,0 +1,42 @@
+package com.example.maizedisease;
+
+import java.nio.ByteBuffer;
+
+// One YUV_420_888 frame, described by its three planes. Whoever receives a frame must close() it
+// once done so the source can reuse the underlying buffers. rotationDegrees is how far the frame
+// must turn clockwise to be upright: 0, 90, 180 or 270.
+public class CameraFrame {
+    public final int width;
+    public final int height;
+    public final ByteBuffer yPlane;
+    public final ByteBuffer uPlane;
+    public final ByteBuffer vPlane;
+    public final int yRowStride;
+    public final int uvRowStride;
+    public final int uvPixelStride;
+    public final int rotationDegrees;
+    public final long timestampNanos;
+    private final Runnable onClose;
+
+    public CameraFrame(int width, int height, ByteBuffer yPlane, ByteBuffer uPlane, ByteBuffer vPlane,
+                       int yRowStride, int uvRowStride, int uvPixelStride, int rotationDegrees,
+                       long timestampNanos, Runnable onClose) {
+        this.width = width;
+        this.height = height;
+        this.yPlane = yPlane;
+        this.uPlane = uPlane;
+        this.vPlane = vPlane;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+        this.onClose = onClose;
+    }
+
+    public void close() {
+        if (onClose != null) {
+            onClose.run();
+        }
+    }
+}
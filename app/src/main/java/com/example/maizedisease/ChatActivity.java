@@ -14,22 +14,40 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.maizedisease.databinding.ActivityChatBinding;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 
-import java.util.UUID;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ChatActivity extends AppCompatActivity {
     private static final String TAG = "ChatActivity";
     private ActivityChatBinding binding;
     private ImageView backButton, logoutButton;
     private String receiverUserId;
-    private DatabaseReference databaseReferenceSender, databaseReferenceReceiver;
-    private String senderRoom, receiverRoom;
+    private DatabaseReference databaseReference, roomReference;
+    private String roomId;
     private MessageAdapter messageAdapter;
+    private final ChatTimeline timeline = new ChatTimeline();
+    private final FrameBatcher timelineUpdates = new FrameBatcher(this::showTimeline);
+    private ChatPager pager;
+    private ChatStore chatStore;
+    // Messages from the server waiting to be merged into the local store, written once per frame
+    private final Map<String, MessageModel> pendingWrites = new LinkedHashMap<>();
+    private final FrameBatcher storeWrites = new FrameBatcher(this::flushWrites);
+    private boolean followBottom;
+    // A message sent while the migration runs is newer than anything it moves
+    private boolean sentMessage;
+    private Query liveMessages;
+    private ChildEventListener messagesListener;
     private FirebaseUser currentUser;
     private String currentUserUserId;
 
@@ -52,37 +70,67 @@ public class ChatActivity extends AppCompatActivity {
         currentUser = FirebaseAuth.getInstance().getCurrentUser();
         currentUserUserId = currentUser.getUid();
 
-        // Generate the sender and receiver room names
-        senderRoom = currentUserUserId + receiverUserId; // Use userId instead of username
-        receiverRoom = receiverUserId + currentUserUserId; // Use userId instead of username
+        // Both users share one room, whichever of them opens it
+        roomId = ChatRooms.roomId(currentUserUserId, receiverUserId);
 
         // Initialize the message adapter and recycler view
         messageAdapter = new MessageAdapter(this, currentUserUserId); // Use userId instead of username
         binding.recycler.setAdapter(messageAdapter);
         binding.recycler.setLayoutManager(new LinearLayoutManager(this));
+        // Opening a room delivers every message as its own event; show them all in one diff per frame
+        timeline.setListener(new ChatTimeline.Listener() {
+            @Override
+            public void onInserted(int position) {
+                timelineUpdates.schedule();
+            }
+
+            @Override
+            public void onChanged(int position) {
+                timelineUpdates.schedule();
+            }
+
+            @Override
+            public void onRemoved(int position) {
+                timelineUpdates.schedule();
+            }
+        });
 
         // Initialize the database references
-        databaseReferenceSender = FirebaseDatabase.getInstance().getReference("chats").child(senderRoom);
-        databaseReferenceReceiver = FirebaseDatabase.getInstance().getReference("chats").child(receiverRoom);
+        databaseReference = FirebaseDatabase.getInstance().getReference();
+        roomReference = databaseReference.child(ChatRooms.CHATS).child(roomId);
 
-        // Add a value event listener to the sender's chat room
-        databaseReferenceSender.addValueEventListener(new ValueEventListener() {
+        pager = new ChatPager(timeline, new ChatPager.PageSource() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                messageAdapter.clear();
-                for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
-                    MessageModel messageModel = dataSnapshot.getValue(MessageModel.class);
-                    messageAdapter.add(messageModel);
-                }
+            public void loadOlder(String beforeKey, int limit, ChatPager.PageCallback callback) {
+                loadPage(roomReference.orderByKey().endBefore(beforeKey).limitToLast(limit), callback);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                // Handle error
-                Log.e(TAG, "DatabaseError: " + error.getMessage());
+            public void loadNewer(String afterKey, int limit, ChatPager.PageCallback callback) {
+                loadPage(roomReference.orderByKey().startAfter(afterKey).limitToFirst(limit), callback);
+            }
+        });
+        binding.recycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                pager.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
             }
         });
 
+        // A room opened before shows what was stored last time in the first frame, without the network
+        chatStore = ChatStore.getInstance(this);
+        pager.onCachedPage(chatStore.loadNewest(roomId, ChatPager.PAGE_SIZE));
+        if (timeline.size() > 0) {
+            followBottom = true;
+            showTimeline();
+        }
+
+        listenForMessages();
+        // Runs alongside, so sending and live messages never wait on the network for it
+        migrateLegacyRooms();
+
         // Set a click listener on the send message button
         binding.sendMessage.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -96,23 +144,193 @@ public class ChatActivity extends AppCompatActivity {
         });
     }
 
+    // Both legacy rooms are read and whatever is in them is moved over in one atomic update. Runs on
+    // every open, since a peer on an older version may still write there; empty rooms cost one read each.
+    private void migrateLegacyRooms() {
+        databaseReference.child(ChatRooms.conversationPath(currentUserUserId, receiverUserId))
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        readLegacyRooms(ChatRooms.legacyRoomIds(currentUserUserId, receiverUserId), 0,
+                                new HashMap<>(), snapshot.hasChild(ChatRooms.LAST_MESSAGE_KEY));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(TAG, "DatabaseError: " + error.getMessage());
+                    }
+                });
+    }
+
+    private void readLegacyRooms(List<String> legacyRoomIds, int index, Map<String, MessageModel> messages,
+                                 boolean indexHasLastMessage) {
+        if (index == legacyRoomIds.size()) {
+            if (messages.isEmpty()) {
+                return;
+            }
+            Map<String, Object> update = ChatRooms.migrationUpdate(currentUserUserId, receiverUserId, messages,
+                    indexHasLastMessage || sentMessage, ServerValue.TIMESTAMP);
+            // Applied locally straight away, so the live listener sees the moved messages at once
+            databaseReference.updateChildren(update)
+                    .addOnFailureListener(e -> Log.e(TAG, "Could not migrate chat room " + roomId, e));
+            // They sort before everything already shown, which paging may have taken as the start
+            pager.onOlderMessagesAdded();
+            return;
+        }
+        databaseReference.child(ChatRooms.CHATS).child(legacyRoomIds.get(index))
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        for (DataSnapshot child : snapshot.getChildren()) {
+                            MessageModel messageModel = child.getValue(MessageModel.class);
+                            if (messageModel != null) {
+                                messages.put(child.getKey(), messageModel);
+                            }
+                        }
+                        readLegacyRooms(legacyRoomIds, index + 1, messages, indexHasLastMessage);
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        // Leave the legacy rooms alone and try again next time the chat is opened
+                        Log.e(TAG, "DatabaseError: " + error.getMessage());
+                    }
+                });
+    }
+
+    private void listenForMessages() {
+        // Only the newest page is listened to, so opening a room costs the same however long its history is.
+        // Each message is applied as its own event instead of reloading the room on every change.
+        liveMessages = roomReference.orderByKey().limitToLast(ChatPager.PAGE_SIZE);
+        messagesListener = liveMessages.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                MessageModel messageModel = snapshot.getValue(MessageModel.class);
+                if (messageModel == null) {
+                    return;
+                }
+                store(snapshot.getKey(), messageModel);
+                LinearLayoutManager layoutManager = (LinearLayoutManager) binding.recycler.getLayoutManager();
+                boolean atBottom = layoutManager.findLastVisibleItemPosition() >= messageAdapter.getItemCount() - 1;
+                boolean own = currentUserUserId.equals(messageModel.getSenderId());
+                if (pager.onLiveMessage(snapshot.getKey(), messageModel, previousChildName == null)
+                        && (atBottom || own)) {
+                    followBottom = true;
+                }
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                MessageModel messageModel = snapshot.getValue(MessageModel.class);
+                if (messageModel != null) {
+                    store(snapshot.getKey(), messageModel);
+                    pager.onLiveChange(snapshot.getKey(), messageModel);
+                }
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                // Fired when a new message pushes the oldest one out of the limitToLast window.
+                // Messages are never deleted, so that is the only cause, and older messages stay shown.
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // Children are ordered by key, which never changes, so nothing moves
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                // Handle error
+                Log.e(TAG, "DatabaseError: " + error.getMessage());
+            }
+        });
+    }
+
+    private void loadPage(Query query, ChatPager.PageCallback callback) {
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Map<String, MessageModel> page = new LinkedHashMap<>();
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    MessageModel messageModel = child.getValue(MessageModel.class);
+                    if (messageModel != null) {
+                        page.put(child.getKey(), messageModel);
+                    }
+                }
+                pendingWrites.putAll(page);
+                storeWrites.schedule();
+                callback.onPage(page);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "DatabaseError: " + error.getMessage());
+                callback.onPage(null);
+            }
+        });
+    }
+
+    private void store(String key, MessageModel messageModel) {
+        pendingWrites.put(key, messageModel);
+        storeWrites.schedule();
+    }
+
+    private void flushWrites() {
+        if (!pendingWrites.isEmpty()) {
+            chatStore.putAllAsync(roomId, pendingWrites);
+            pendingWrites.clear();
+        }
+    }
+
+    private void showTimeline() {
+        // Follow the conversation when a new message arrives while the bottom is in view
+        boolean scroll = followBottom;
+        followBottom = false;
+        messageAdapter.submitList(timeline.snapshot(), () -> {
+            if (scroll && !isDestroyed()) {
+                binding.recycler.scrollToPosition(messageAdapter.getItemCount() - 1);
+            }
+        });
+    }
+
     private void sendMessage(String message, String senderUserId, String receiverUserId) {
         if (senderUserId != null && !senderUserId.isEmpty()) {
-            String messageId = UUID.randomUUID().toString();
+            // Push keys sort by creation time, so the room's key order is the conversation order
+            String messageId = roomReference.push().getKey();
+            sentMessage = true;
             MessageModel messageModel = new MessageModel(messageId, senderUserId, message);
 
-            // Add the message to the adapter
-            messageAdapter.add(messageModel);
+            // No local add: the listener sees the write straight away, before the server confirms it
 
-            // Save the message to the sender's and receiver's chat rooms
-            databaseReferenceSender.child(messageId).setValue(messageModel);
-            databaseReferenceReceiver.child(messageId).setValue(messageModel);
+            // Store the message once and update both users' conversation index in one atomic write
+            databaseReference.updateChildren(ChatRooms.sendUpdate(messageId, messageModel, receiverUserId,
+                    ServerValue.TIMESTAMP))
+                    .addOnFailureListener(e -> Log.e(TAG, "Could not send message", e));
         } else {
             // Handle the case where the senderUserId is not available
             Log.e(TAG, "senderUserId is not available");
             // You can show an error message to the user or take other appropriate actions
         }
     }
+
+    @Override
+    protected void onDestroy() {
+        if (liveMessages != null) {
+            liveMessages.removeEventListener(messagesListener);
+        }
+        timelineUpdates.cancel();
+        storeWrites.cancel();
+        flushWrites();
+        super.onDestroy();
+    }
+
     private void logout() {
         Intent intent = new Intent(ChatActivity.this, SignIn.class);
         startActivity(intent);
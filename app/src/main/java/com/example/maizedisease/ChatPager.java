@@ -0,0 +1,199 @@
+package com.example.maizedisease;
+
+import java.util.Map;
+
+// Keeps a bounded window of a chat room in a ChatTimeline. The room opens on its newest page from
+// the live listener, older and newer pages are fetched as key-range queries when the visible rows
+// get close to either end, and once the window holds more than maxMessages the end furthest from
+// the visible rows is dropped. While the newest messages are dropped, live messages are ignored and
+// fetched again as a newer page when the user scrolls back down. A page cached on the device can be
+// shown before the live listener answers; it is kept only if it joins up with the live page.
+// Ranges are bounded by ChatTimeline order keys. The shared room only holds push keys and migrated
+// legacy keys (see ChatRooms), whose key order is the conversation order, so key ranges are pages.
+// Main thread only.
+public class ChatPager {
+
+    public interface PageSource {
+        // Up to limit messages with keys before beforeKey, the newest of them, in key order
+        void loadOlder(String beforeKey, int limit, PageCallback callback);
+
+        // Up to limit messages with keys after afterKey, the oldest of them, in key order
+        void loadNewer(String afterKey, int limit, PageCallback callback);
+    }
+
+    public interface PageCallback {
+        // page is null if the query failed; the same page is asked for again on the next scroll
+        void onPage(Map<String, MessageModel> page);
+    }
+
+    static final int PAGE_SIZE = 50;
+    static final int MAX_MESSAGES = 200;
+    // Rows from either end at which the next page is requested
+    static final int PREFETCH_DISTANCE = 10;
+
+    private final ChatTimeline timeline;
+    private final PageSource source;
+    private final int pageSize;
+    private final int maxMessages;
+    private boolean hasOlder = true;
+    private boolean missingNewest;
+    private boolean loadingOlder;
+    private boolean loadingNewer;
+    private int firstVisible = -1;
+    private int lastVisible = -1;
+
+    public ChatPager(ChatTimeline timeline, PageSource source) {
+        this(timeline, source, PAGE_SIZE, MAX_MESSAGES);
+    }
+
+    ChatPager(ChatTimeline timeline, PageSource source, int pageSize, int maxMessages) {
+        if (maxMessages < 2 * pageSize) {
+            throw new IllegalArgumentException("The window must hold at least two pages");
+        }
+        this.timeline = timeline;
+        this.source = source;
+        this.pageSize = pageSize;
+        this.maxMessages = maxMessages;
+    }
+
+    // Messages stored on the device, shown while the live listener connects
+    public void onCachedPage(Map<String, MessageModel> page) {
+        for (Map.Entry<String, MessageModel> entry : page.entrySet()) {
+            timeline.add(entry.getKey(), entry.getValue());
+        }
+        trim();
+    }
+
+    // A message from the live listener; oldestInWindow is set for the one with no previous sibling
+    // in the live query. Returns true if it became the newest message shown.
+    public boolean onLiveMessage(String key, MessageModel message, boolean oldestInWindow) {
+        int size = timeline.size();
+        if (missingNewest && size > 0 && ChatTimeline.orderKey(key).compareTo(timeline.getOrderKey(size - 1)) > 0) {
+            return false;
+        }
+        if (oldestInWindow && !missingNewest) {
+            dropUnjoined(key);
+        }
+        int position = timeline.add(key, message);
+        boolean newest = position == timeline.size() - 1 && timeline.size() > size;
+        trim();
+        return newest && timeline.indexOf(key) >= 0;
+    }
+
+    // An edit from the live listener; ignored for messages outside the window
+    public void onLiveChange(String key, MessageModel message) {
+        if (timeline.indexOf(key) >= 0) {
+            timeline.change(key, message);
+        }
+    }
+
+    public void onVisibleRangeChanged(int first, int last) {
+        firstVisible = first;
+        lastVisible = last;
+        int size = timeline.size();
+        if (size == 0 || first < 0) {
+            return;
+        }
+        if (first < PREFETCH_DISTANCE) {
+            loadOlder();
+        }
+        if (last >= size - PREFETCH_DISTANCE) {
+            loadNewer();
+        }
+    }
+
+    // Messages older than the window were added to the room, such as a migrated legacy room
+    public void onOlderMessagesAdded() {
+        hasOlder = true;
+    }
+
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    public boolean isMissingNewest() {
+        return missingNewest;
+    }
+
+    private void loadOlder() {
+        if (!hasOlder || loadingOlder) {
+            return;
+        }
+        loadingOlder = true;
+        String beforeKey = timeline.getOrderKey(0);
+        source.loadOlder(beforeKey, pageSize, page -> {
+            loadingOlder = false;
+            // A trim meanwhile would leave a hole between the page and the window
+            if (page == null || timeline.size() == 0 || !beforeKey.equals(timeline.getOrderKey(0))) {
+                return;
+            }
+            if (page.size() < pageSize) {
+                hasOlder = false;
+            }
+            for (Map.Entry<String, MessageModel> entry : page.entrySet()) {
+                timeline.add(entry.getKey(), entry.getValue());
+            }
+            trim();
+        });
+    }
+
+    private void loadNewer() {
+        if (!missingNewest || loadingNewer) {
+            return;
+        }
+        loadingNewer = true;
+        String afterKey = timeline.getOrderKey(timeline.size() - 1);
+        source.loadNewer(afterKey, pageSize, page -> {
+            loadingNewer = false;
+            if (page == null || timeline.size() == 0 || !afterKey.equals(timeline.getOrderKey(timeline.size() - 1))) {
+                return;
+            }
+            if (page.size() < pageSize) {
+                // Caught up; from here on the live listener keeps the bottom current
+                missingNewest = false;
+            }
+            for (Map.Entry<String, MessageModel> entry : page.entrySet()) {
+                timeline.add(entry.getKey(), entry.getValue());
+            }
+            trim();
+        });
+    }
+
+    // Messages before the start of the live page that do not reach it, such as a cached page from an
+    // earlier visit or what was shown before a long disconnect, may have a gap after them. They are
+    // dropped and paged in again from the server.
+    private void dropUnjoined(String liveStart) {
+        if (timeline.indexOf(liveStart) >= 0) {
+            return;
+        }
+        String start = ChatTimeline.orderKey(liveStart);
+        int count = 0;
+        while (count < timeline.size() && timeline.getOrderKey(count).compareTo(start) < 0) {
+            count++;
+        }
+        if (count > 0) {
+            timeline.removeFirst(count);
+            hasOlder = true;
+        }
+    }
+
+    private void trim() {
+        int excess = timeline.size() - maxMessages;
+        if (excess <= 0) {
+            return;
+        }
+        // Before the list has been laid out, treat the bottom as visible
+        int size = timeline.size();
+        int first = firstVisible < 0 ? size - 1 : Math.min(firstVisible, size - 1);
+        int last = lastVisible < 0 ? size - 1 : Math.min(lastVisible, size - 1);
+        if (first >= size - 1 - last) {
+            timeline.removeFirst(excess);
+            hasOlder = true;
+            firstVisible = Math.max(0, firstVisible - excess);
+            lastVisible = Math.max(0, lastVisible - excess);
+        } else {
+            timeline.removeLast(excess);
+            missingNewest = true;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.maizedisease;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Database layout for one-to-one chats. Both users share a single room, chats/<roomId>, whose id is
+// the two user ids sorted, so each message is stored once. conversations/<user>/<other> indexes a
+// user's rooms with the newest message; it is written in the same multi-path update as the message,
+// so the index and the room never disagree. Older versions kept a copy of every message in
+// chats/<sender+receiver> and chats/<receiver+sender> under random UUID keys; migrationUpdate()
+// folds those into the room under ChatTimeline order keys, so the room's key order stays the
+// conversation order that paging relies on. A peer still on an older version keeps writing to the
+// legacy rooms, so they are swept again every time the chat is opened.
+public final class ChatRooms {
+
+    static final String CHATS = "chats";
+    static final String CONVERSATIONS = "conversations";
+    static final String LAST_MESSAGE_KEY = "lastMessageKey";
+    // Firebase user ids are alphanumeric, so this can never appear inside one
+    private static final String SEPARATOR = "_";
+
+    private ChatRooms() {
+    }
+
+    public static String roomId(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) <= 0
+                ? userId + SEPARATOR + otherUserId
+                : otherUserId + SEPARATOR + userId;
+    }
+
+    // The two duplicated rooms older versions wrote for this pair
+    public static List<String> legacyRoomIds(String userId, String otherUserId) {
+        return Arrays.asList(userId + otherUserId, otherUserId + userId);
+    }
+
+    public static String messagePath(String roomId, String key) {
+        return CHATS + "/" + roomId + "/" + key;
+    }
+
+    public static String conversationPath(String userId, String otherUserId) {
+        return CONVERSATIONS + "/" + userId + "/" + otherUserId;
+    }
+
+    // Paths for updateChildren() that store a message once and point both users' index at it.
+    // timestamp is normally ServerValue.TIMESTAMP. Index fields are written one by one so any
+    // other field next to them is kept.
+    public static Map<String, Object> sendUpdate(String key, MessageModel message, String receiverId,
+                                                 Object timestamp) {
+        String senderId = message.getSenderId();
+        String roomId = roomId(senderId, receiverId);
+        Map<String, Object> update = new HashMap<>();
+        update.put(messagePath(roomId, key), message);
+        putConversation(update, senderId, receiverId, roomId);
+        putLastMessage(update, senderId, receiverId, key, message, timestamp);
+        return update;
+    }
+
+    // Paths for updateChildren() that move the given legacy messages into the shared room and delete
+    // them from both legacy rooms, all or nothing. Only the keys that were read are deleted, so a
+    // message an older client writes after the read stays for the next sweep. The legacy rooms hold
+    // the same messages under the same keys, so merging by key removes the duplicates.
+    // Each message moves to its ChatTimeline order key and keeps its old key as msgid. Legacy
+    // messages are older than any push-keyed one, so the newest of them only becomes the index's
+    // last message when the index has none yet.
+    public static Map<String, Object> migrationUpdate(String userId, String otherUserId,
+                                                      Map<String, MessageModel> legacyMessages,
+                                                      boolean indexHasLastMessage, Object timestamp) {
+        Map<String, Object> update = new HashMap<>();
+        TreeMap<String, MessageModel> merged = new TreeMap<>();
+        for (Map.Entry<String, MessageModel> entry : legacyMessages.entrySet()) {
+            merged.put(ChatTimeline.orderKey(entry.getKey()), entry.getValue());
+        }
+        String roomId = roomId(userId, otherUserId);
+        for (Map.Entry<String, MessageModel> entry : merged.entrySet()) {
+            update.put(messagePath(roomId, entry.getKey()), entry.getValue());
+        }
+        for (String legacyRoomId : legacyRoomIds(userId, otherUserId)) {
+            for (String key : legacyMessages.keySet()) {
+                update.put(messagePath(legacyRoomId, key), null);
+            }
+        }
+        putConversation(update, userId, otherUserId, roomId);
+        if (!merged.isEmpty() && !indexHasLastMessage) {
+            Map.Entry<String, MessageModel> newest = merged.lastEntry();
+            putLastMessage(update, userId, otherUserId, newest.getKey(), newest.getValue(), timestamp);
+        }
+        return update;
+    }
+
+    private static void putConversation(Map<String, Object> update, String userId, String otherUserId,
+                                        String roomId) {
+        update.put(conversationPath(userId, otherUserId) + "/roomId", roomId);
+        update.put(conversationPath(otherUserId, userId) + "/roomId", roomId);
+    }
+
+    private static void putLastMessage(Map<String, Object> update, String userId, String otherUserId,
+                                       String key, MessageModel message, Object timestamp) {
+        for (String path : new String[]{conversationPath(userId, otherUserId), conversationPath(otherUserId, userId)}) {
+            update.put(path + "/" + LAST_MESSAGE_KEY, key);
+            update.put(path + "/lastMessage", message.getMessage());
+            update.put(path + "/lastSenderId", message.getSenderId());
+            update.put(path + "/updatedAt", timestamp);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.maizedisease;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Chat messages kept on the device, so a room that has been opened before shows straight away
+// without the network. The table is keyed by (room, message key), which dedupes the same message
+// merged again, and indexed by (room, ord), ord being the ChatTimeline order key, for reading a
+// room newest-first in conversation order. Each message keeps its own msgid, which differs from the
+// key for messages migrated from a legacy room. Writes run in order on one background thread and each
+// room keeps only its newest maxPerRoom messages.
+public class ChatStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "ChatStore";
+    private static final String DATABASE = "chat_store.db";
+    private static final int VERSION = 3;
+    static final int MAX_MESSAGES_PER_ROOM = 500;
+
+    private static ChatStore instance;
+
+    private final int maxPerRoom;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "chat-store"));
+
+    public static synchronized ChatStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChatStore(context.getApplicationContext(), DATABASE, MAX_MESSAGES_PER_ROOM);
+        }
+        return instance;
+    }
+
+    // A null name keeps the database in memory
+    ChatStore(Context context, String name, int maxPerRoom) {
+        super(context, name, null, VERSION);
+        this.maxPerRoom = maxPerRoom;
+        // Lets the main thread read a room while the writer thread is merging into it
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE messages ("
+                + "room TEXT NOT NULL, "
+                + "msg_key TEXT NOT NULL, "
+                + "ord TEXT NOT NULL, "
+                + "msgid TEXT, "
+                + "sender_id TEXT, "
+                + "message TEXT, "
+                + "PRIMARY KEY (room, msg_key)) WITHOUT ROWID");
+        db.execSQL("CREATE INDEX messages_order ON messages (room, ord)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only a cache of the server, so it is simply rebuilt
+        db.execSQL("DROP TABLE IF EXISTS messages");
+        onCreate(db);
+    }
+
+    // The newest messages of a room in conversation order, as they were stored. A range read of one index, cheap enough for the
+    // main thread when a chat opens.
+    public Map<String, MessageModel> loadNewest(String roomId, int limit) {
+        List<String> keys = new ArrayList<>();
+        List<MessageModel> messages = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("messages",
+                new String[]{"msg_key", "msgid", "sender_id", "message"}, "room = ?", new String[]{roomId},
+                null, null, "ord DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                keys.add(cursor.getString(0));
+                messages.add(new MessageModel(cursor.getString(1), cursor.getString(2), cursor.getString(3)));
+            }
+        }
+        Collections.reverse(keys);
+        Collections.reverse(messages);
+        Map<String, MessageModel> page = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            page.put(keys.get(i), messages.get(i));
+        }
+        return page;
+    }
+
+    // Merges messages into a room, replacing any stored under the same key, then applies retention
+    public void putAll(String roomId, Map<String, MessageModel> messages) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Map.Entry<String, MessageModel> entry : messages.entrySet()) {
+                values.clear();
+                values.put("room", roomId);
+                values.put("msg_key", entry.getKey());
+                values.put("ord", ChatTimeline.orderKey(entry.getKey()));
+                values.put("msgid", entry.getValue().getMsgid());
+                values.put("sender_id", entry.getValue().getSenderId());
+                values.put("message", entry.getValue().getMessage());
+                db.insertWithOnConflict("messages", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.execSQL("DELETE FROM messages WHERE room = ? AND ord < "
+                            + "(SELECT ord FROM messages WHERE room = ? ORDER BY ord DESC LIMIT 1 OFFSET ?)",
+                    new Object[]{roomId, roomId, maxPerRoom - 1});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // putAll() on the writer thread; the map is copied, so the caller may reuse it
+    public void putAllAsync(String roomId, Map<String, MessageModel> messages) {
+        Map<String, MessageModel> copy = new LinkedHashMap<>(messages);
+        writer.execute(() -> {
+            try {
+                putAll(roomId, copy);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not store messages for " + roomId, e);
+            }
+        });
+    }
+
+    public int count(String roomId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM messages WHERE room = ?",
+                new String[]{roomId})) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+}
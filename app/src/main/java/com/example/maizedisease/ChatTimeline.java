@@ -0,0 +1,146 @@
+package com.example.maizedisease;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The messages of one chat room in conversation order, updated one child event at a time.
+// Appending a newer key is constant time and anything else is a binary search, so a new message
+// costs the same however long the room is, and the listener is told exactly which position changed.
+// Not thread-safe: Firebase delivers child events on the main thread, and so should other callers.
+public class ChatTimeline {
+
+    // Prefix that puts messages from before push keys ahead of every push key
+    static final String LEGACY_PREFIX = "!";
+
+    public interface Listener {
+        void onInserted(int position);
+
+        void onChanged(int position);
+
+        void onRemoved(int position);
+    }
+
+    private final List<String> keys = new ArrayList<>();
+    // orderKey() of each key, kept alongside for the searches
+    private final List<String> order = new ArrayList<>();
+    private final List<MessageModel> messages = new ArrayList<>();
+    private Listener listener;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Where a message key falls in conversation order. Push keys start with '-' and sort by time.
+    // Older versions keyed messages by random UUID, which would sort after every push key, so those
+    // are ordered as LEGACY_PREFIX + the UUID, the key ChatRooms moves them to, ahead of all push keys.
+    static String orderKey(String key) {
+        if (key.startsWith("-") || key.startsWith(LEGACY_PREFIX)) {
+            return key;
+        }
+        return LEGACY_PREFIX + key;
+    }
+
+    // A key that is already present is treated as a change, which covers a locally sent message
+    // being confirmed by the server. Returns the message's position.
+    public int add(String key, MessageModel message) {
+        // Push keys grow over time, so new messages nearly always go at the end
+        String orderKey = orderKey(key);
+        int size = keys.size();
+        if (size == 0 || orderKey.compareTo(order.get(size - 1)) > 0) {
+            keys.add(key);
+            order.add(orderKey);
+            messages.add(message);
+            if (listener != null) {
+                listener.onInserted(size);
+            }
+            return size;
+        }
+        int index = Collections.binarySearch(order, orderKey);
+        if (index >= 0) {
+            messages.set(index, message);
+            if (listener != null) {
+                listener.onChanged(index);
+            }
+            return index;
+        }
+        int position = -index - 1;
+        keys.add(position, key);
+        order.add(position, orderKey);
+        messages.add(position, message);
+        if (listener != null) {
+            listener.onInserted(position);
+        }
+        return position;
+    }
+
+    public int change(String key, MessageModel message) {
+        return add(key, message);
+    }
+
+    // Returns the position the message had, or -1 if it was not here
+    public int remove(String key) {
+        int index = Collections.binarySearch(order, orderKey(key));
+        if (index < 0) {
+            return -1;
+        }
+        keys.remove(index);
+        order.remove(index);
+        messages.remove(index);
+        if (listener != null) {
+            listener.onRemoved(index);
+        }
+        return index;
+    }
+
+    // An unmodifiable copy for ListAdapter.submitList(), which must not see later changes
+    public List<MessageModel> snapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(messages));
+    }
+
+    // Drops the oldest count messages, reported one by one from the top
+    public void removeFirst(int count) {
+        keys.subList(0, count).clear();
+        order.subList(0, count).clear();
+        messages.subList(0, count).clear();
+        if (listener != null) {
+            for (int i = 0; i < count; i++) {
+                listener.onRemoved(0);
+            }
+        }
+    }
+
+    // Drops the newest count messages, reported one by one from the bottom
+    public void removeLast(int count) {
+        int size = keys.size();
+        keys.subList(size - count, size).clear();
+        order.subList(size - count, size).clear();
+        messages.subList(size - count, size).clear();
+        if (listener != null) {
+            for (int i = 1; i <= count; i++) {
+                listener.onRemoved(size - i);
+            }
+        }
+    }
+
+    public int indexOf(String key) {
+        int index = Collections.binarySearch(order, orderKey(key));
+        return index >= 0 ? index : -1;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public MessageModel get(int position) {
+        return messages.get(position);
+    }
+
+    public String getKey(int position) {
+        return keys.get(position);
+    }
+
+    public String getOrderKey(int position) {
+        return order.get(position);
+    }
+}
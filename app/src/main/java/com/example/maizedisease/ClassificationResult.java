@@ -0,0 +1,109 @@
+package com.example.maizedisease;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+// Scores for every class plus the top-k ranking, built from a single read of the model output
+public class ClassificationResult implements Parcelable {
+    public static final int DEFAULT_TOP_K = 3;
+
+    private final float[] scores;
+    private final int[] ranking;
+    private final String[] labels;
+
+    ClassificationResult(float[] scores, int[] ranking, String[] labels) {
+        this.scores = scores;
+        this.ranking = ranking;
+        this.labels = labels;
+    }
+
+    protected ClassificationResult(Parcel in) {
+        scores = in.createFloatArray();
+        ranking = in.createIntArray();
+        labels = in.createStringArray();
+    }
+
+    public static final Creator<ClassificationResult> CREATOR = new Creator<ClassificationResult>() {
+        @Override
+        public ClassificationResult createFromParcel(Parcel in) {
+            return new ClassificationResult(in);
+        }
+
+        @Override
+        public ClassificationResult[] newArray(int size) {
+            return new ClassificationResult[size];
+        }
+    };
+
+    // Takes ownership of scores; the caller must not modify the array afterwards
+    public static ClassificationResult fromScores(float[] scores, String[] labels, int topK) {
+        int k = Math.min(topK, scores.length);
+        int[] ranking = new int[k];
+        int filled = 0;
+        // Insertion into a k-sized sorted array: one pass over the scores, no boxing
+        for (int i = 0; i < scores.length; i++) {
+            float score = scores[i];
+            if (filled == k && score <= scores[ranking[k - 1]]) {
+                continue;
+            }
+            int pos = filled < k ? filled++ : k - 1;
+            while (pos > 0 && scores[ranking[pos - 1]] < score) {
+                ranking[pos] = ranking[pos - 1];
+                pos--;
+            }
+            ranking[pos] = i;
+        }
+        return new ClassificationResult(scores, ranking, labels);
+    }
+
+    public int getTopIndex() {
+        return ranking[0];
+    }
+
+    public String getTopLabel() {
+        return getLabel(ranking[0]);
+    }
+
+    public float getTopScore() {
+        return scores[ranking[0]];
+    }
+
+    public int getRankCount() {
+        return ranking.length;
+    }
+
+    public int getIndexAtRank(int rank) {
+        return ranking[rank];
+    }
+
+    public float getScore(int classIndex) {
+        return scores[classIndex];
+    }
+
+    public int getClassCount() {
+        return scores.length;
+    }
+
+    public String getLabel(int classIndex) {
+        if (labels == null || classIndex >= labels.length) {
+            return "Unknown";
+        }
+        return labels[classIndex];
+    }
+
+    String[] getLabels() {
+        return labels;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeFloatArray(scores);
+        dest.writeIntArray(ranking);
+        dest.writeStringArray(labels);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.maizedisease;
+
+import android.view.Choreographer;
+
+// Runs an action at most once per display frame, however often it is scheduled before that frame.
+// Folds a burst of database events into a single list update. Main thread only.
+public class FrameBatcher implements Choreographer.FrameCallback {
+
+    private final Runnable action;
+    private boolean scheduled;
+
+    public FrameBatcher(Runnable action) {
+        this.action = action;
+    }
+
+    public void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void cancel() {
+        if (scheduled) {
+            scheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        action.run();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.maizedisease;
+
+// Anything that produces camera-like frames: the device camera, a file, or synthetic frames in tests
+public interface FrameSource {
+
+    interface Listener {
+        // The listener owns the frame and must close() it
+        void onFrame(CameraFrame frame);
+    }
+
+    void start(Listener listener);
+
+    void stop();
+}
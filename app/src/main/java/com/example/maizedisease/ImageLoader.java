@@ -0,0 +1,138 @@
+package com.example.maizedisease;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Decodes picked images straight to the sizes the app needs instead of at full camera resolution.
+// Bounds are read first, then the decoder subsamples so only a display-sized preview and a
+// model-sized copy are ever held in memory. Every bitmap comes from the BitmapPool and intermediate
+// ones go back to it.
+public class ImageLoader {
+
+    static final int PREVIEW_MAX_SIDE = 1024;
+
+    public static class LoadedImage {
+        public final Bitmap preview;
+        public final Bitmap modelInput;
+        public final int sourceWidth;
+        public final int sourceHeight;
+
+        LoadedImage(Bitmap preview, Bitmap modelInput, int sourceWidth, int sourceHeight) {
+            this.preview = preview;
+            this.modelInput = modelInput;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+        }
+    }
+
+    private ImageLoader() {
+    }
+
+    public static LoadedImage load(ContentResolver contentResolver, Uri uri, BitmapPool pool) throws IOException {
+        BitmapFactory.Options bounds = readBounds(contentResolver, uri);
+        long start = PipelineMetrics.start();
+        Bitmap preview = decode(contentResolver, uri, bounds, PREVIEW_MAX_SIDE, pool);
+        PipelineMetrics.stop(PipelineMetrics.Stage.DECODE, start);
+        start = PipelineMetrics.start();
+        Bitmap modelInput = scale(preview, InferenceEngine.INPUT_SIZE, InferenceEngine.INPUT_SIZE, pool);
+        PipelineMetrics.stop(PipelineMetrics.Stage.SCALE, start);
+        return new LoadedImage(preview, modelInput, bounds.outWidth, bounds.outHeight);
+    }
+
+    // Model-sized copy only, for images that are queued rather than shown
+    public static Bitmap loadModelInput(ContentResolver contentResolver, Uri uri, BitmapPool pool) throws IOException {
+        Bitmap decoded = decode(contentResolver, uri, readBounds(contentResolver, uri), InferenceEngine.INPUT_SIZE, pool);
+        Bitmap modelInput = scale(decoded, InferenceEngine.INPUT_SIZE, InferenceEngine.INPUT_SIZE, pool);
+        pool.put(decoded);
+        return modelInput;
+    }
+
+    // A larger decode for tiled inference, made on demand and not kept around
+    public static Bitmap loadDetail(ContentResolver contentResolver, Uri uri, int maxSide, BitmapPool pool)
+            throws IOException {
+        return decode(contentResolver, uri, readBounds(contentResolver, uri), maxSide, pool);
+    }
+
+    // Filtered scale into a pooled bitmap, in place of createScaledBitmap. The Paint is made per call
+    // so that loading this class does not touch android.graphics, which the desktop tools call into.
+    static Bitmap scale(Bitmap source, int width, int height, BitmapPool pool) {
+        Bitmap scaled = pool.get(width, height);
+        new Canvas(scaled).drawBitmap(source, null, new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+        return scaled;
+    }
+
+    private static BitmapFactory.Options readBounds(ContentResolver contentResolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = contentResolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unsupported image format");
+        }
+        return bounds;
+    }
+
+    private static Bitmap decode(ContentResolver contentResolver, Uri uri, BitmapFactory.Options bounds, int maxSide,
+                                 BitmapPool pool) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxSide);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        // Rounded up, since decoders differ in how they round subsampled sizes
+        int sampleSize = options.inSampleSize;
+        options.inBitmap = pool.getForDecode((bounds.outWidth + sampleSize - 1) / sampleSize,
+                (bounds.outHeight + sampleSize - 1) / sampleSize);
+        Bitmap decoded;
+        try {
+            decoded = decodeStream(contentResolver, uri, options);
+        } catch (IllegalArgumentException e) {
+            // The decoder could not reuse the pooled bitmap; decode into a new one
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            decoded = decodeStream(contentResolver, uri, options);
+        }
+        if (decoded == null) {
+            pool.put(options.inBitmap);
+            throw new IOException("Could not decode image");
+        }
+        return fitWithin(decoded, maxSide, pool);
+    }
+
+    private static Bitmap decodeStream(ContentResolver contentResolver, Uri uri, BitmapFactory.Options options)
+            throws IOException {
+        try (InputStream in = contentResolver.openInputStream(uri)) {
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+
+    // Largest power of two that keeps the longer side at or above maxSide
+    static int calculateInSampleSize(int width, int height, int maxSide) {
+        int longSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= maxSide) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // inSampleSize only goes in powers of two, so finish the last step with a filtered scale
+    private static Bitmap fitWithin(Bitmap bitmap, int maxSide, BitmapPool pool) {
+        int longSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longSide <= maxSide) {
+            return bitmap;
+        }
+        float factor = (float) maxSide / longSide;
+        Bitmap scaled = scale(bitmap, Math.round(bitmap.getWidth() * factor), Math.round(bitmap.getHeight() * factor), pool);
+        pool.put(bitmap);
+        return scaled;
+    }
+}
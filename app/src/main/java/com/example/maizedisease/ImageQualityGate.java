@@ -0,0 +1,204 @@
+package com.example.maizedisease;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+
+import java.util.Locale;
+
+// Rejects photos the model cannot do anything useful with before any interpreter work: blurred,
+// too dark or bright, or with hardly any leaf in frame. Everything is measured on a small
+// downsample, so a check costs a few milliseconds. evaluate() is plain Java on ARGB pixels so the
+// thresholds can be tuned on the desktop against labeled samples (QualityGateValidation).
+public class ImageQualityGate {
+
+    public enum Reason {
+        OK(null),
+        TOO_DARK("The photo is too dark. Move into better light and try again."),
+        TOO_BRIGHT("The photo is overexposed. Avoid direct sunlight on the leaf and try again."),
+        NO_LEAF("No maize leaf found. Fill the frame with the leaf and try again."),
+        BLURRY("The photo is blurred. Hold the phone steady, tap to focus and try again.");
+
+        public final String message;
+
+        Reason(String message) {
+            this.message = message;
+        }
+    }
+
+    public static class Config {
+        // Long side of the downsample everything is measured on
+        public int analysisSize = 128;
+        // Mean luma, 0-255
+        public int minBrightness = 40;
+        public int maxBrightness = 220;
+        // Share of pixels at or above CLIPPED_LUMA
+        public float maxClippedFraction = 0.4f;
+        // Share of pixels whose colour is in the leaf hue range
+        public float minLeafFraction = 0.15f;
+        // Variance of the 4-neighbour Laplacian of luma
+        public float minSharpness = 20f;
+    }
+
+    public static class Verdict {
+        public final Reason reason;
+        public final float brightness;
+        public final float clippedFraction;
+        public final float leafFraction;
+        public final float sharpness;
+
+        Verdict(Reason reason, float brightness, float clippedFraction, float leafFraction, float sharpness) {
+            this.reason = reason;
+            this.brightness = brightness;
+            this.clippedFraction = clippedFraction;
+            this.leafFraction = leafFraction;
+            this.sharpness = sharpness;
+        }
+
+        public boolean isUsable() {
+            return reason == Reason.OK;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s brightness=%.0f clipped=%.2f leaf=%.2f sharpness=%.1f",
+                    reason, brightness, clippedFraction, leafFraction, sharpness);
+        }
+    }
+
+    static final int CLIPPED_LUMA = 250;
+    // Hue range, in degrees, counted as leaf: yellow-green through blue-green. Rust and blight
+    // lesions fall outside it, but they never cover most of a leaf that is still worth scanning.
+    static final int LEAF_HUE_MIN = 45;
+    static final int LEAF_HUE_MAX = 170;
+    static final int LEAF_MIN_SATURATION_PERCENT = 15;
+    static final int LEAF_MIN_VALUE = 30;
+
+    private final Config config;
+    private final Rect srcRect = new Rect();
+    private final Rect dstRect = new Rect();
+    private Paint paint;
+    private Bitmap analysisBitmap;
+    private Canvas canvas;
+    private int[] pixels;
+
+    public ImageQualityGate(Config config) {
+        this.config = config;
+    }
+
+    public synchronized Verdict check(Bitmap bitmap) {
+        long start = PipelineMetrics.start();
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        float scale = Math.min(1f, (float) config.analysisSize / Math.max(width, height));
+        width = Math.max(1, Math.round(width * scale));
+        height = Math.max(1, Math.round(height * scale));
+
+        if (analysisBitmap == null || analysisBitmap.getWidth() != width || analysisBitmap.getHeight() != height) {
+            analysisBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            canvas = new Canvas(analysisBitmap);
+            pixels = new int[width * height];
+        }
+        if (paint == null) {
+            paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        }
+        srcRect.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        dstRect.set(0, 0, width, height);
+        canvas.drawBitmap(bitmap, srcRect, dstRect, paint);
+        analysisBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        Verdict verdict = evaluate(pixels, width, height, config);
+        PipelineMetrics.stop(PipelineMetrics.Stage.QUALITY_GATE, start);
+        return verdict;
+    }
+
+    // Exposure is checked first: a black or blown-out frame also has no leaf and no edges, and
+    // "too dark" is the more useful thing to tell the user
+    static Verdict evaluate(int[] pixels, int width, int height, Config config) {
+        int count = width * height;
+        int[] luma = new int[count];
+        long lumaSum = 0;
+        int clipped = 0;
+        int leaf = 0;
+        for (int i = 0; i < count; i++) {
+            int pixel = pixels[i];
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            int y = (77 * r + 150 * g + 29 * b) >> 8;
+            luma[i] = y;
+            lumaSum += y;
+            if (y >= CLIPPED_LUMA) {
+                clipped++;
+            }
+            if (isLeaf(r, g, b)) {
+                leaf++;
+            }
+        }
+        float brightness = (float) lumaSum / count;
+        float clippedFraction = (float) clipped / count;
+        float leafFraction = (float) leaf / count;
+        float sharpness = laplacianVariance(luma, width, height);
+
+        Reason reason;
+        if (brightness < config.minBrightness) {
+            reason = Reason.TOO_DARK;
+        } else if (brightness > config.maxBrightness || clippedFraction > config.maxClippedFraction) {
+            reason = Reason.TOO_BRIGHT;
+        } else if (leafFraction < config.minLeafFraction) {
+            reason = Reason.NO_LEAF;
+        } else if (sharpness < config.minSharpness) {
+            reason = Reason.BLURRY;
+        } else {
+            reason = Reason.OK;
+        }
+        return new Verdict(reason, brightness, clippedFraction, leafFraction, sharpness);
+    }
+
+    static boolean isLeaf(int r, int g, int b) {
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+        if (max < LEAF_MIN_VALUE || delta * 100 < max * LEAF_MIN_SATURATION_PERCENT) {
+            return false;
+        }
+        int hue;
+        if (max == r) {
+            hue = 60 * (g - b) / delta;
+            if (hue < 0) {
+                hue += 360;
+            }
+        } else if (max == g) {
+            hue = 120 + 60 * (b - r) / delta;
+        } else {
+            hue = 240 + 60 * (r - g) / delta;
+        }
+        return hue >= LEAF_HUE_MIN && hue <= LEAF_HUE_MAX;
+    }
+
+    // Focus measure: a sharp image has strong second derivatives at its edges, a blurred one does not
+    static float laplacianVariance(int[] luma, int width, int height) {
+        if (width < 3 || height < 3) {
+            return 0f;
+        }
+        long sum = 0;
+        long sumSquares = 0;
+        int n = 0;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                int laplacian = 4 * luma[i] - luma[i - 1] - luma[i + 1] - luma[i - width] - luma[i + width];
+                sum += laplacian;
+                sumSquares += (long) laplacian * laplacian;
+                n++;
+            }
+        }
+        double mean = (double) sum / n;
+        return (float) ((double) sumSquares / n - mean * mean);
+    }
+}
@@ -0,0 +1,568 @@
+package com.example.maizedisease;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Owns the single TFLite interpreter used by the whole process.
+// All access to the interpreter goes through the lock, so classify() can be called from any thread.
+public class InferenceEngine {
+
+    private static final String TAG = "InferenceEngine";
+    static final int INPUT_SIZE = 256;
+    static final int INPUT_CHANNELS = 3;
+    static final int MAX_BATCH_SIZE = 8;
+    static final int CACHE_MEMORY_ENTRIES = 64;
+    static final int CACHE_DISK_ENTRIES = 512;
+    // Rough native memory a single image in a batch needs: input tensor plus intermediate activations
+    private static final long BATCH_BYTES_PER_IMAGE = 16L * TensorPreprocessor.INPUT_BYTES;
+
+    private static volatile InferenceEngine instance;
+
+    private final Context context;
+    private final ModelVariant requestedVariant;
+    private final Object lock = new Object();
+    private final TensorPreprocessor preprocessor = new TensorPreprocessor();
+    // Only the process-wide engine caches predictions; null for the others and after close()
+    private volatile PredictionCache cache;
+    private ExecutorService cacheWriter;
+    // The process-wide engine serves the registry's active model; others stay on what they were given
+    private final boolean followRegistry;
+
+    private Interpreter interpreter;
+    private int numThreads;
+    private boolean useXnnpack;
+    private volatile ModelVariant variant;
+    // Installed model served instead of the bundled one, or null
+    private File modelFile;
+    private volatile String modelVersion;
+    private boolean registryChecked;
+    private volatile ShadowEvaluator shadow;
+    private ByteBuffer output;
+    private String[] labels;
+    private int classCount;
+    private DataType outputType;
+    private float outputScale;
+    private int outputZeroPoint;
+    private int inputBatchSize = 1;
+    private boolean batchSupported = true;
+    private ByteBuffer batchInput;
+    private ByteBuffer batchOutput;
+
+    private volatile long loadTimeMs = -1;
+    private volatile long coldLatencyMs = -1;
+    private volatile long warmLatencyMs = -1;
+
+    private InferenceEngine(Context context, ModelVariant variant, boolean shared) {
+        this.context = context;
+        this.requestedVariant = variant;
+        this.followRegistry = shared;
+        if (shared) {
+            cacheWriter = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "prediction-cache"));
+            cache = new PredictionCache(new File(context.getCacheDir(), "predictions"),
+                    CACHE_MEMORY_ENTRIES, CACHE_DISK_ENTRIES, cacheWriter);
+        }
+        ThreadCalibrator.Settings settings = ThreadCalibrator.loadSettings(context);
+        this.numThreads = settings.numThreads;
+        this.useXnnpack = settings.useXnnpack;
+    }
+
+    public static InferenceEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (InferenceEngine.class) {
+                if (instance == null) {
+                    instance = new InferenceEngine(context.getApplicationContext(),
+                            ModelVariant.fromConfig(BuildConfig.MODEL_VARIANT), true);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Separate engine with its own interpreter and no prediction cache, for benchmarks and comparisons
+    public static InferenceEngine create(Context context, ModelVariant variant) {
+        return new InferenceEngine(context.getApplicationContext(), variant, false);
+    }
+
+    // Separate engine for an installed model file, used by ShadowEvaluator
+    static InferenceEngine createFromFile(Context context, ModelRegistry.Model model) {
+        InferenceEngine engine = new InferenceEngine(context.getApplicationContext(), ModelVariant.FLOAT32, false);
+        engine.modelFile = model.file;
+        engine.modelVersion = model.version;
+        return engine;
+    }
+
+    // Loads the model and runs it twice so the first real prediction only pays warm latency.
+    // Blocks, so call it off the UI thread.
+    public void warmUp() throws IOException {
+        if (!ThreadCalibrator.isCalibrated(context)) {
+            ThreadCalibrator.calibrate(context, this);
+        }
+        synchronized (lock) {
+            ensureLoaded();
+            // A blank image is enough to initialize the kernels
+            Bitmap blank = Bitmap.createBitmap(INPUT_SIZE, INPUT_SIZE, Bitmap.Config.ARGB_8888);
+            runTimed(preprocessor.preprocess(blank));
+            runTimed(preprocessor.preprocess(blank));
+        }
+        Log.i(TAG, "Warm-up done: threads=" + numThreads + ", xnnpack=" + useXnnpack + ", load="
+                + loadTimeMs + "ms, cold=" + coldLatencyMs + "ms, warm=" + warmLatencyMs + "ms");
+    }
+
+    public ClassificationResult classify(Bitmap bitmap) throws IOException {
+        synchronized (lock) {
+            ensureLoaded();
+            long start = PipelineMetrics.start();
+            ByteBuffer input = preprocessor.preprocess(bitmap);
+            PipelineMetrics.stop(PipelineMetrics.Stage.PREPROCESS, start);
+
+            start = PipelineMetrics.start();
+            PredictionCache cache = this.cache;
+            String key = null;
+            long perceptualHash = 0;
+            int meanColor = 0;
+            if (cache != null) {
+                key = inputKey(input);
+                perceptualHash = PredictionCache.differenceHash(preprocessor.getPixels(), INPUT_SIZE);
+                meanColor = PredictionCache.meanColor(preprocessor.getPixels());
+            }
+            float[] cached = cache != null ? cache.get(key, perceptualHash, meanColor) : null;
+            PipelineMetrics.stop(PipelineMetrics.Stage.CACHE_LOOKUP, start);
+            if (cached != null) {
+                ClassificationResult result = ClassificationResult.fromScores(cached.clone(), labels,
+                        ClassificationResult.DEFAULT_TOP_K);
+                offerToShadow(result);
+                return result;
+            }
+
+            resizeInput(1);
+            runTimed(input);
+            start = PipelineMetrics.start();
+            float[] scores = readScores(output, 0);
+            ClassificationResult result = ClassificationResult.fromScores(scores, labels, ClassificationResult.DEFAULT_TOP_K);
+            PipelineMetrics.stop(PipelineMetrics.Stage.POSTPROCESS, start);
+            if (cache != null) {
+                cache.put(key, perceptualHash, meanColor, scores);
+            }
+            offerToShadow(result);
+            return result;
+        }
+    }
+
+    // Live camera path: no prediction cache, since consecutive frames are never identical
+    public ClassificationResult classifyFrame(CameraFrame frame) throws IOException {
+        synchronized (lock) {
+            ensureLoaded();
+            resizeInput(1);
+            long start = PipelineMetrics.start();
+            ByteBuffer input = preprocessor.preprocessFrame(frame);
+            PipelineMetrics.stop(PipelineMetrics.Stage.PREPROCESS, start);
+            runTimed(input);
+            start = PipelineMetrics.start();
+            ClassificationResult result = ClassificationResult.fromScores(readScores(output, 0), labels,
+                    ClassificationResult.DEFAULT_TOP_K);
+            PipelineMetrics.stop(PipelineMetrics.Stage.POSTPROCESS, start);
+            return result;
+        }
+    }
+
+    // Runs the images through the interpreter in [N, 256, 256, 3] batches, one result per image in order.
+    // Falls back to one image at a time when the model cannot be resized.
+    public List<ClassificationResult> classifyBatch(List<Bitmap> bitmaps) throws IOException {
+        List<ClassificationResult> results = new ArrayList<>(bitmaps.size());
+        synchronized (lock) {
+            ensureLoaded();
+            int batchSize = chooseBatchSize(bitmaps.size());
+            for (int start = 0; start < bitmaps.size(); start += batchSize) {
+                int count = Math.min(batchSize, bitmaps.size() - start);
+                if (count > 1 && resizeInput(count)) {
+                    batchInput.clear();
+                    for (int i = 0; i < count; i++) {
+                        preprocessor.preprocessInto(bitmaps.get(start + i), batchInput);
+                    }
+                    batchInput.rewind();
+                    batchOutput.rewind();
+                    interpreter.run(batchInput, batchOutput);
+                    for (int i = 0; i < count; i++) {
+                        results.add(ClassificationResult.fromScores(readScores(batchOutput, i), labels,
+                                ClassificationResult.DEFAULT_TOP_K));
+                    }
+                } else {
+                    resizeInput(1);
+                    for (int i = 0; i < count; i++) {
+                        runTimed(preprocessor.preprocess(bitmaps.get(start + i)));
+                        results.add(ClassificationResult.fromScores(readScores(output, 0), labels,
+                                ClassificationResult.DEFAULT_TOP_K));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    // Takes effect on the next inference; the current interpreter is closed and rebuilt with these options
+    public void setInterpreterOptions(int numThreads, boolean useXnnpack) {
+        synchronized (lock) {
+            if (numThreads == this.numThreads && useXnnpack == this.useXnnpack) {
+                return;
+            }
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+            closeInterpreter();
+        }
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public boolean isXnnpackEnabled() {
+        return useXnnpack;
+    }
+
+    // Median latency in nanoseconds of a blank single-image inference, after one untimed run.
+    // Calibration runs bypass runTimed(), so the reported cold and warm latencies stay those of real
+    // inferences.
+    long measureLatencyNanos(int runs) throws IOException {
+        synchronized (lock) {
+            ensureLoaded();
+            resizeInput(1);
+            ByteBuffer input = preprocessor.preprocess(Bitmap.createBitmap(INPUT_SIZE, INPUT_SIZE, Bitmap.Config.ARGB_8888));
+            run(input);
+            long[] times = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                run(input);
+                times[i] = SystemClock.elapsedRealtimeNanos() - start;
+            }
+            Arrays.sort(times);
+            return times[runs / 2];
+        }
+    }
+
+    // Loads the model and builds its interpreter outside the lock, then swaps it in between two
+    // inferences, so predictions keep coming from the old model until the new one is ready and
+    // none ever mixes the two. Null goes back to the bundled model.
+    public void swapModel(ModelRegistry.Model model) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        long metricsStart = PipelineMetrics.start();
+        SharedModel shared;
+        ModelVariant bundledVariant = variant;
+        if (model != null) {
+            shared = SharedModel.fromFile(model.file);
+        } else {
+            bundledVariant = resolveBundledVariant();
+            shared = SharedModel.fromAsset(context, bundledVariant.assetName);
+        }
+        Interpreter.Options options;
+        synchronized (lock) {
+            options = interpreterOptions();
+        }
+        Interpreter loaded = new Interpreter(shared.buffer(), options);
+        synchronized (lock) {
+            closeInterpreter();
+            registryChecked = true;
+            modelFile = model != null ? model.file : null;
+            modelVersion = model != null ? model.version : null;
+            variant = bundledVariant;
+            attach(loaded, shared);
+            loadTimeMs = SystemClock.elapsedRealtime() - start;
+        }
+        PipelineMetrics.stop(PipelineMetrics.Stage.MODEL_LOAD, metricsStart);
+        Log.i(TAG, "Swapped to " + getModelDescription() + " in " + loadTimeMs + "ms");
+    }
+
+    // Runs candidate on a sample of this engine's predictions; null stops the current one
+    public void setShadowEvaluator(ShadowEvaluator evaluator) {
+        ShadowEvaluator previous = shadow;
+        shadow = evaluator;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public ShadowEvaluator getShadowEvaluator() {
+        return shadow;
+    }
+
+    public String getModelDescription() {
+        String version = modelVersion;
+        return version != null ? "installed " + version : "bundled " + variant;
+    }
+
+    public void close() {
+        synchronized (lock) {
+            closeInterpreter();
+            if (cacheWriter != null) {
+                // Queued disk writes still finish; the engine runs uncached if it is used again
+                cacheWriter.shutdown();
+                cacheWriter = null;
+                cache = null;
+            }
+        }
+        setShadowEvaluator(null);
+    }
+
+    private void closeInterpreter() {
+        if (interpreter != null) {
+            interpreter.close();
+            interpreter = null;
+        }
+    }
+
+    // The variant actually loaded, which is FLOAT32 if the requested file was missing
+    public ModelVariant getVariant() throws IOException {
+        synchronized (lock) {
+            ensureLoaded();
+            return variant;
+        }
+    }
+
+    public long getCacheHits() {
+        PredictionCache cache = this.cache;
+        return cache != null ? cache.getHits() : 0;
+    }
+
+    public long getCacheMisses() {
+        PredictionCache cache = this.cache;
+        return cache != null ? cache.getMisses() : 0;
+    }
+
+    public String getCacheStats() {
+        PredictionCache cache = this.cache;
+        return cache != null ? cache.getStats() : "disabled";
+    }
+
+    public long getLoadTimeMs() {
+        return loadTimeMs;
+    }
+
+    public long getColdLatencyMs() {
+        return coldLatencyMs;
+    }
+
+    public long getWarmLatencyMs() {
+        return warmLatencyMs;
+    }
+
+    // Largest batch that fits the device, spread evenly so the last batch is not a tiny remainder
+    private int chooseBatchSize(int imageCount) {
+        if (!batchSupported || imageCount <= 1) {
+            return 1;
+        }
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        int maxBatch = activityManager.isLowRamDevice() ? 2 : MAX_BATCH_SIZE;
+        long byMemory = (memoryInfo.availMem - memoryInfo.threshold) / BATCH_BYTES_PER_IMAGE;
+        maxBatch = (int) Math.max(1, Math.min(maxBatch, byMemory));
+
+        int batches = (imageCount + maxBatch - 1) / maxBatch;
+        return (imageCount + batches - 1) / batches;
+    }
+
+    private boolean resizeInput(int batchSize) {
+        if (batchSize == inputBatchSize) {
+            return true;
+        }
+        try {
+            interpreter.resizeInput(0, new int[]{batchSize, INPUT_SIZE, INPUT_SIZE, INPUT_CHANNELS});
+            interpreter.allocateTensors();
+            if (interpreter.getOutputTensor(0).shape()[0] != batchSize) {
+                throw new IllegalArgumentException("Output batch dimension did not follow the input");
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.w(TAG, "Model does not support batch size " + batchSize + ", using single images", e);
+            batchSupported = false;
+            if (batchSize != 1) {
+                interpreter.resizeInput(0, new int[]{1, INPUT_SIZE, INPUT_SIZE, INPUT_CHANNELS});
+                interpreter.allocateTensors();
+                inputBatchSize = 1;
+            }
+            return false;
+        }
+        inputBatchSize = batchSize;
+        if (batchSize > 1) {
+            // The interpreter checks the buffer capacity against the tensor size, so it has to match exactly
+            int inputBytes = batchSize * preprocessor.getImageBytes();
+            if (batchInput == null || batchInput.capacity() != inputBytes) {
+                batchInput = ByteBuffer.allocateDirect(inputBytes).order(ByteOrder.nativeOrder());
+            }
+            batchOutput = allocateOutput(batchSize);
+        }
+        return true;
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (interpreter != null) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        long metricsStart = PipelineMetrics.start();
+        if (followRegistry && !registryChecked) {
+            registryChecked = true;
+            ModelRegistry.Model active = loadActiveModel();
+            if (active != null) {
+                modelFile = active.file;
+                modelVersion = active.version;
+            }
+        }
+        SharedModel model;
+        if (modelFile != null) {
+            model = SharedModel.fromFile(modelFile);
+        } else {
+            variant = resolveBundledVariant();
+            model = SharedModel.fromAsset(context, variant.assetName);
+        }
+        attach(new Interpreter(model.buffer(), interpreterOptions()), model);
+        loadTimeMs = SystemClock.elapsedRealtime() - start;
+        PipelineMetrics.stop(PipelineMetrics.Stage.MODEL_LOAD, metricsStart);
+    }
+
+    // The registry's active model if it is intact; a damaged or missing file falls back to the bundled one
+    private ModelRegistry.Model loadActiveModel() {
+        try {
+            ModelRegistry.Model active = ModelRegistry.getInstance(context).getActive();
+            if (active == null) {
+                return null;
+            }
+            if (!ModelRegistry.getInstance(context).verify(active)) {
+                Log.e(TAG, "Checksum mismatch for installed model " + active.version + ", using the bundled model");
+                return null;
+            }
+            return active;
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening model registry, using the bundled model", e);
+            return null;
+        }
+    }
+
+    private ModelVariant resolveBundledVariant() throws IOException {
+        try {
+            SharedModel.fromAsset(context, requestedVariant.assetName);
+            return requestedVariant;
+        } catch (IOException e) {
+            if (requestedVariant == ModelVariant.FLOAT32) {
+                throw e;
+            }
+            Log.w(TAG, requestedVariant.assetName + " is not bundled, falling back to " + ModelVariant.FLOAT32, e);
+            return ModelVariant.FLOAT32;
+        }
+    }
+
+    private Interpreter.Options interpreterOptions() {
+        return new Interpreter.Options()
+                .setNumThreads(numThreads)
+                .setUseXNNPACK(useXnnpack);
+    }
+
+    // Reads the tensor layout of a freshly built interpreter; everything sized for the previous model is reset
+    private void attach(Interpreter loaded, SharedModel model) {
+        interpreter = loaded;
+        inputBatchSize = 1;
+        batchSupported = true;
+        batchInput = null;
+        batchOutput = null;
+        coldLatencyMs = -1;
+
+        Tensor inputTensor = interpreter.getInputTensor(0);
+        preprocessor.setInputType(inputTensor.dataType(), inputTensor.quantizationParams().getScale(),
+                inputTensor.quantizationParams().getZeroPoint());
+        Tensor outputTensor = interpreter.getOutputTensor(0);
+        int[] outputShape = outputTensor.shape();
+        classCount = outputShape[outputShape.length - 1];
+        outputType = outputTensor.dataType();
+        outputScale = outputTensor.quantizationParams().getScale();
+        outputZeroPoint = outputTensor.quantizationParams().getZeroPoint();
+        output = allocateOutput(1);
+        labels = ModelLabels.load(context, model.buffer(), classCount);
+        if (cache != null) {
+            cache.setModelId(model.id);
+        }
+    }
+
+    // Sampling and copying happen here; the candidate runs on the evaluator's own thread
+    private void offerToShadow(ClassificationResult result) {
+        ShadowEvaluator evaluator = shadow;
+        if (evaluator != null) {
+            evaluator.offer(preprocessor.getPixels(), result);
+        }
+    }
+
+    private static String inputKey(ByteBuffer input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(input.duplicate());
+            byte[] hash = digest.digest();
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ByteBuffer allocateOutput(int batchSize) {
+        int bytesPerScore = outputType == DataType.FLOAT32 ? 4 : 1;
+        return ByteBuffer.allocateDirect(batchSize * classCount * bytesPerScore).order(ByteOrder.nativeOrder());
+    }
+
+    // Dequantizes as (q - zeroPoint) * scale when the model outputs uint8 or int8
+    private float[] readScores(ByteBuffer buffer, int row) {
+        float[] scores = new float[classCount];
+        if (outputType == DataType.FLOAT32) {
+            int offset = row * classCount * 4;
+            for (int i = 0; i < classCount; i++) {
+                scores[i] = buffer.getFloat(offset + i * 4);
+            }
+        } else {
+            int offset = row * classCount;
+            for (int i = 0; i < classCount; i++) {
+                byte q = buffer.get(offset + i);
+                int value = outputType == DataType.UINT8 ? q & 0xFF : q;
+                scores[i] = (value - outputZeroPoint) * outputScale;
+            }
+        }
+        return scores;
+    }
+
+    private void run(ByteBuffer input) {
+        input.rewind();
+        output.rewind();
+        interpreter.run(input, output);
+    }
+
+    private void runTimed(ByteBuffer input) {
+        long start = SystemClock.elapsedRealtime();
+        long metricsStart = PipelineMetrics.start();
+        run(input);
+        PipelineMetrics.stop(PipelineMetrics.Stage.INFERENCE, metricsStart);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        if (coldLatencyMs < 0) {
+            // First inference pays for kernel preparation and memory allocation
+            coldLatencyMs = loadTimeMs + elapsed;
+        } else {
+            warmLatencyMs = elapsed;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs predictions on one background thread with a bounded queue.
+// Each LifecycleOwner has at most one live request: a new submit supersedes the pending one,
+// and everything for an owner is cancelled when it is destroyed.
+public class InferenceScheduler {
+
+    private static final String TAG = "InferenceScheduler";
+    private static final int QUEUE_CAPACITY = 4;
+
+    public interface Task {
+        ClassificationResult run(InferenceEngine engine) throws Exception;
+    }
+
+    public interface Callback {
+        void onResult(ClassificationResult result);
+
+        void onError(Exception e);
+    }
+
+    private static volatile InferenceScheduler instance;
+
+    private final InferenceEngine engine;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor;
+    private final Map<LifecycleOwner, Request> pending = new HashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    private InferenceScheduler(InferenceEngine engine) {
+        this.engine = engine;
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_FOREGROUND);
+                    runnable.run();
+                }, "inference"));
+    }
+
+    public static InferenceScheduler getInstance(Context context) {
+        if (instance == null) {
+            synchronized (InferenceScheduler.class) {
+                if (instance == null) {
+                    instance = new InferenceScheduler(InferenceEngine.getInstance(context));
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Must be called on the main thread; the callback is delivered there while owner is alive
+    public void submit(LifecycleOwner owner, Bitmap bitmap, Callback callback) {
+        submit(owner, engine -> engine.classify(bitmap), callback);
+    }
+
+    public void submit(LifecycleOwner owner, Task task, Callback callback) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        Request request = new Request(owner, task, callback);
+        Request previous;
+        synchronized (pending) {
+            previous = pending.put(owner, request);
+        }
+        if (previous != null) {
+            previous.cancel();
+            executor.remove(previous);
+            superseded.incrementAndGet();
+        }
+        owner.getLifecycle().addObserver(request);
+        submitted.incrementAndGet();
+        try {
+            executor.execute(request);
+            maxQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            request.finish();
+            callback.onError(new IllegalStateException("Too many predictions queued, please wait"));
+        }
+    }
+
+    public void cancel(LifecycleOwner owner) {
+        Request request;
+        synchronized (pending) {
+            request = pending.remove(owner);
+        }
+        if (request != null) {
+            request.cancel();
+            executor.remove(request);
+            cancelled.incrementAndGet();
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getAverageWaitMs() {
+        long done = completed.get();
+        return done == 0 ? 0 : totalWaitMs.get() / done;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs.get();
+    }
+
+    public String getMetricsSummary() {
+        return "submitted=" + submitted.get() + " completed=" + completed.get()
+                + " superseded=" + superseded.get() + " cancelled=" + cancelled.get()
+                + " rejected=" + rejected.get() + " queue=" + getQueueDepth()
+                + " maxQueue=" + maxQueueDepth.get() + " avgWait=" + getAverageWaitMs()
+                + "ms maxWait=" + maxWaitMs.get() + "ms";
+    }
+
+    private class Request implements Runnable, LifecycleEventObserver {
+        private final LifecycleOwner owner;
+        private final Task task;
+        private final Callback callback;
+        private final long enqueuedAt = SystemClock.elapsedRealtime();
+        private volatile boolean stale;
+
+        Request(LifecycleOwner owner, Task task, Callback callback) {
+            this.owner = owner;
+            this.task = task;
+            this.callback = callback;
+        }
+
+        void cancel() {
+            stale = true;
+            mainHandler.post(() -> owner.getLifecycle().removeObserver(this));
+        }
+
+        // Called on the main thread once the request is delivered or dropped
+        void finish() {
+            synchronized (pending) {
+                if (pending.get(owner) == this) {
+                    pending.remove(owner);
+                }
+            }
+            owner.getLifecycle().removeObserver(this);
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                InferenceScheduler.this.cancel(source);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (stale) {
+                return;
+            }
+            long waitMs = SystemClock.elapsedRealtime() - enqueuedAt;
+            totalWaitMs.addAndGet(waitMs);
+            maxWaitMs.accumulateAndGet(waitMs, Math::max);
+            PipelineMetrics.record(PipelineMetrics.Stage.QUEUE_WAIT, waitMs * 1_000_000L);
+
+            ClassificationResult result = null;
+            Exception error = null;
+            try {
+                result = task.run(engine);
+            } catch (Exception e) {
+                error = e;
+            }
+            completed.incrementAndGet();
+            Log.d(TAG, getMetricsSummary());
+
+            ClassificationResult finalResult = result;
+            Exception finalError = error;
+            mainHandler.post(() -> {
+                finish();
+                if (stale || owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                    return;
+                }
+                if (finalError != null) {
+                    callback.onError(finalError);
+                } else {
+                    callback.onResult(finalResult);
+                }
+            });
+        }
+    }
+}
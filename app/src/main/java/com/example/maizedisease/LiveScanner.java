@@ -0,0 +1,142 @@
+package com.example.maizedisease;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Feeds frames from a FrameSource into the classifier on one worker thread.
+// Only the newest frame is kept: if inference is slower than the camera, the waiting frame is
+// replaced and closed, so results never lag behind what the camera sees.
+public class LiveScanner {
+
+    public interface FrameClassifier {
+        ClassificationResult classify(CameraFrame frame) throws Exception;
+    }
+
+    public interface Listener {
+        void onResult(ClassificationResult result);
+
+        void onError(Exception e);
+    }
+
+    private final FrameSource source;
+    private final FrameClassifier classifier;
+    private final Executor callbackExecutor;
+    private final AtomicReference<CameraFrame> latest = new AtomicReference<>();
+    private final Object signal = new Object();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long startedAtNanos;
+    private volatile boolean running;
+    private Thread worker;
+
+    public LiveScanner(FrameSource source, FrameClassifier classifier, Executor callbackExecutor) {
+        this.source = source;
+        this.classifier = classifier;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public synchronized void start(Listener listener) {
+        if (running) {
+            return;
+        }
+        running = true;
+        startedAtNanos = System.nanoTime();
+        worker = new Thread(() -> processLoop(listener), "live-scan");
+        worker.start();
+        source.start(this::offer);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        CameraFrame pending = latest.getAndSet(null);
+        if (pending != null) {
+            pending.close();
+        }
+        // Stopped last: the worker may still be reading a frame whose buffers belong to the source
+        source.stop();
+    }
+
+    public long getReceivedFrames() {
+        return received.get();
+    }
+
+    public long getProcessedFrames() {
+        return processed.get();
+    }
+
+    public long getDroppedFrames() {
+        return dropped.get();
+    }
+
+    // Classified frames per second since start()
+    public float getFramesPerSecond() {
+        long elapsed = System.nanoTime() - startedAtNanos;
+        return elapsed <= 0 ? 0f : processed.get() * 1e9f / elapsed;
+    }
+
+    private void offer(CameraFrame frame) {
+        received.incrementAndGet();
+        if (!running) {
+            frame.close();
+            return;
+        }
+        CameraFrame stale = latest.getAndSet(frame);
+        if (stale != null) {
+            dropped.incrementAndGet();
+            stale.close();
+        }
+        if (!running) {
+            // stop() ran between the check above and the set, and may already have drained latest.
+            // Whichever of us takes the frame out closes it.
+            CameraFrame orphan = latest.getAndSet(null);
+            if (orphan != null) {
+                orphan.close();
+            }
+            return;
+        }
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void processLoop(Listener listener) {
+        while (running) {
+            CameraFrame frame = latest.getAndSet(null);
+            if (frame == null) {
+                synchronized (signal) {
+                    if (running && latest.get() == null) {
+                        try {
+                            signal.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+                continue;
+            }
+            try {
+                ClassificationResult result = classifier.classify(frame);
+                processed.incrementAndGet();
+                callbackExecutor.execute(() -> listener.onResult(result));
+            } catch (Exception e) {
+                callbackExecutor.execute(() -> listener.onError(e));
+            } finally {
+                frame.close();
+            }
+        }
+    }
+}
@@ -7,12 +7,12 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import android.Manifest;
+import android.content.ContentResolver;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.net.Uri;
 import android.os.Bundle;
-import android.provider.MediaStore;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -20,29 +20,27 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.example.maizedisease.ml.MaizeModel;
-
-import org.tensorflow.lite.DataType;
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
-
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "MainActivity";
-    private static final float CONFIDENCE_THRESHOLD = 0.90f;
+    // Below this the user is asked for another photo; ModelEvaluator reports the reject rate at it
+    static final float CONFIDENCE_THRESHOLD = 0.90f;
     private static final int REQUEST_STORAGE_PERMISSION = 1;
-    private static final int MAX_IMAGE_SIZE = 1024 * 1024; // 1 MB
 
     private ImageView imageView,message,backButton, logoutButton;
     private TextView resultTextView;
     private Button predictButton;
     private Bitmap imageBitmap;
-    private MaizeModel model;
+    private Bitmap previewBitmap;
+    // Model input the inference thread is reading; not returned to the pool until it is done
+    private Bitmap predictingBitmap;
+    private Uri imageUri;
+    private BitmapPool bitmapPool;
+    private final TiledClassifier.Config tiledConfig = new TiledClassifier.Config();
+    private final ImageQualityGate qualityGate = new ImageQualityGate(new ImageQualityGate.Config());
 
     private ActivityResultLauncher<String> pickImageLauncher;
 
@@ -51,6 +49,7 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        bitmapPool = BitmapPool.getInstance(this);
         imageView = findViewById(R.id.imageView);
         resultTextView = findViewById(R.id.outputTextView);
         predictButton = findViewById(R.id.predictButton);
@@ -61,6 +60,18 @@ public class MainActivity extends AppCompatActivity {
         Button uploadButton = findViewById(R.id.button);
         predictButton.setEnabled(false);
 
+        Button liveScanButton = findViewById(R.id.liveScanButton);
+        liveScanButton.setOnClickListener(v -> startActivity(new Intent(MainActivity.this, ScanActivity.class)));
+        Button scanQueueButton = findViewById(R.id.scanQueueButton);
+        scanQueueButton.setOnClickListener(v -> startActivity(new Intent(MainActivity.this, ScanQueueActivity.class)));
+
+        if (BuildConfig.DEBUG) {
+            findViewById(R.id.titleText).setOnLongClickListener(v -> {
+                startActivity(new Intent(MainActivity.this, MetricsActivity.class));
+                return true;
+            });
+        }
+
         uploadButton.setOnClickListener(v -> pickImage());
         predictButton.setOnClickListener(v -> predictDisease());
         message.setOnClickListener(v -> messaging());
@@ -71,9 +82,12 @@ public class MainActivity extends AppCompatActivity {
                 uri -> {
                     if (uri != null) {
                         try {
-                            imageBitmap = MediaStore.Images.Media.getBitmap(this.getContentResolver(), uri);
-                            imageBitmap = compressImage(imageBitmap); // Compress the image
-                            imageView.setImageBitmap(imageBitmap);
+                            ImageLoader.LoadedImage image = ImageLoader.load(getContentResolver(), uri, bitmapPool);
+                            imageView.setImageBitmap(image.preview);
+                            releaseImage();
+                            imageBitmap = image.modelInput;
+                            previewBitmap = image.preview;
+                            imageUri = uri;
                             predictButton.setEnabled(true); // Enable predict button after image is loaded
                         } catch (IOException e) {
                             Log.e(TAG, "Error loading image", e);
@@ -94,95 +108,115 @@ public class MainActivity extends AppCompatActivity {
 
     private void predictDisease() {
         if (imageBitmap != null) {
+            // Unusable photos are turned away here, without paying for an inference
+            ImageQualityGate.Verdict verdict = qualityGate.check(imageBitmap);
+            if (!verdict.isUsable()) {
+                Log.i(TAG, "Rejected by quality gate: " + verdict);
+                resultTextView.setText(verdict.reason.message);
+                return;
+            }
             resultTextView.setText("Processing...");
             predictButton.setEnabled(false); // Disable predict button during processing
 
-            new Thread(() -> {
-                try {
-                    model = MaizeModel.newInstance(MainActivity.this);
-
-                    // Resize the input image to match the expected input shape
-                    Bitmap resizedBitmap = Bitmap.createScaledBitmap(imageBitmap, 256, 256, true);
-
-                    TensorImage tensorImage = new TensorImage(DataType.FLOAT32);
-                    tensorImage.load(resizedBitmap);
-                    ByteBuffer byteBuffer = tensorImage.getBuffer();
-
-                    TensorBuffer inputFeature0 = TensorBuffer.createFixedSize(new int[]{1, 256, 256, 3}, DataType.FLOAT32);
-                    inputFeature0.loadBuffer(byteBuffer);
-
-                    MaizeModel.Outputs outputs = model.process(inputFeature0);
-                    TensorBuffer outputFeature0 = outputs.getOutputFeature0AsTensorBuffer();
-
-                    int[] outputArray = outputFeature0.getIntArray();
-                    int outputIndex = 0;
-                    float maxConfidence = outputFeature0.getFloatArray()[0];
-
-                    for (int i = 1; i < outputArray.length; i++) {
-                        if (outputFeature0.getFloatArray()[i] > maxConfidence) {
-                            maxConfidence = outputFeature0.getFloatArray()[i];
-                            outputIndex = i;
-                        }
-                    }
+            Bitmap bitmap = imageBitmap;
+            predictingBitmap = bitmap;
+            Uri uri = imageUri;
+            ContentResolver resolver = getApplicationContext().getContentResolver();
+            InferenceScheduler.getInstance(this).submit(this, engine -> classify(engine, resolver, bitmap, uri), new InferenceScheduler.Callback() {
+                @Override
+                public void onResult(ClassificationResult result) {
+                    showResult(result);
+                }
 
-                    String outputLabel = getLabelForIndex(outputIndex);
-
-                    float finalMaxConfidence = maxConfidence;
-                    runOnUiThread(() -> {
-                        predictButton.setEnabled(true); // Enable predict button after processing
-                        if (finalMaxConfidence >= CONFIDENCE_THRESHOLD) {
-                            resultTextView.setText( outputLabel );
-
-                            // Create an ArrayList of FungicideModel objects based on the predicted disease
-                            ArrayList<FungicideModel> fungicideList = new ArrayList<>();
-                            switch (outputLabel) {
-                                case "Blight":
-                                    fungicideList.add(new FungicideModel(R.drawable.blight, getString(R.string.blight), getString(R.string.mancoflo_esc)));
-                                    break;
-                                case "Common Rust":
-                                    fungicideList.add(new FungicideModel(R.drawable.spot, getString(R.string.common_rust), getString(R.string.amistartop)));
-                                    break;
-                                case "Gray Leaf Spot":
-                                    fungicideList.add(new FungicideModel(R.drawable.spot, getString(R.string.gray_leaf_spot), getString(R.string.amistartop)));
-                                    break;
-                            }
-                            // Start ResultsActivity with prediction result and fungicide recommendations
-                            Intent intent = new Intent(MainActivity.this, ResultsActivity.class);
-                            intent.putExtra("ResultActivity", outputLabel);
-                            intent.putParcelableArrayListExtra("fungicideList", fungicideList);
-                            startActivity(intent);
-                        } else {
-                            resultTextView.setText("Please try again with a different image.");
-                        }
-                    });
-                } catch (Exception e) {
+                @Override
+                public void onError(Exception e) {
                     handlePredictionError(e);
-                } finally {
-                    if (model != null) {
-                        model.close();
-                    }
                 }
-            }).start();
+            });
         } else {
             showErrorToast("Please upload an image first");
         }
     }
 
-    private String getLabelForIndex(int index) {
-        switch (index) {
-            case 0:
-                return "Blight";
-            case 1:
-                return "Common Rust";
-            case 2:
-                return "Gray Leaf Spot";
-            case 3:
-                return "Healthy";
-            default:
-                return "Unknown";
+    // Runs on the inference thread. A low-confidence whole-image result gets a second, tiled look
+    // at a higher-resolution decode, where small lesions are still visible.
+    private ClassificationResult classify(InferenceEngine engine, ContentResolver resolver, Bitmap bitmap, Uri uri)
+            throws IOException {
+        long start = PipelineMetrics.start();
+        ClassificationResult result = engine.classify(bitmap);
+        if (result.getTopScore() >= CONFIDENCE_THRESHOLD || uri == null) {
+            PipelineMetrics.stop(PipelineMetrics.Stage.PREDICTION, start);
+            return result;
+        }
+        long tiledStart = PipelineMetrics.start();
+        Bitmap detail = ImageLoader.loadDetail(resolver, uri, tiledConfig.detailMaxSide, bitmapPool);
+        try {
+            ClassificationResult tiled = new TiledClassifier(engine, tiledConfig, bitmapPool).classify(detail);
+            return tiled.getTopScore() > result.getTopScore() ? tiled : result;
+        } finally {
+            bitmapPool.put(detail);
+            PipelineMetrics.stop(PipelineMetrics.Stage.TILED_RETRY, tiledStart);
+            PipelineMetrics.stop(PipelineMetrics.Stage.PREDICTION, start);
         }
     }
 
+    private void showResult(ClassificationResult result) {
+        MaizeApplication.onPredictionShown();
+        predictionFinished();
+        String outputLabel = result.getTopLabel();
+        predictButton.setEnabled(true); // Enable predict button after processing
+        if (result.getTopScore() >= CONFIDENCE_THRESHOLD) {
+            resultTextView.setText( outputLabel );
+
+            // Create an ArrayList of FungicideModel objects based on the predicted disease
+            ArrayList<FungicideModel> fungicideList = new ArrayList<>();
+            switch (outputLabel) {
+                case "Blight":
+                    fungicideList.add(new FungicideModel(R.drawable.blight, getString(R.string.blight), getString(R.string.mancoflo_esc)));
+                    break;
+                case "Common Rust":
+                    fungicideList.add(new FungicideModel(R.drawable.spot, getString(R.string.common_rust), getString(R.string.amistartop)));
+                    break;
+                case "Gray Leaf Spot":
+                    fungicideList.add(new FungicideModel(R.drawable.spot, getString(R.string.gray_leaf_spot), getString(R.string.amistartop)));
+                    break;
+            }
+            // Start ResultsActivity with prediction result and fungicide recommendations
+            Intent intent = new Intent(MainActivity.this, ResultsActivity.class);
+            intent.putExtra("classificationResult", result);
+            intent.putParcelableArrayListExtra("fungicideList", fungicideList);
+            startActivity(intent);
+        } else {
+            resultTextView.setText("Please try again with a different image.");
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        imageView.setImageDrawable(null);
+        releaseImage();
+        super.onDestroy();
+    }
+
+    private void predictionFinished() {
+        Bitmap finished = predictingBitmap;
+        predictingBitmap = null;
+        if (finished != null && finished != imageBitmap) {
+            // Replaced by a newer pick while the prediction was running
+            bitmapPool.put(finished);
+        }
+    }
+
+    // Hands the current picture back to the pool; call after the view stops showing it
+    private void releaseImage() {
+        bitmapPool.put(previewBitmap);
+        if (imageBitmap != predictingBitmap) {
+            bitmapPool.put(imageBitmap);
+        }
+        previewBitmap = null;
+        imageBitmap = null;
+    }
+
     private void showErrorToast(String message) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
@@ -218,25 +252,11 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private Bitmap compressImage(Bitmap bitmap) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, baos);
-        int options = 100;
-        while (baos.toByteArray().length > MAX_IMAGE_SIZE && options > 0) {
-            baos.reset();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, options, baos);
-            options -= 10;
-        }
-        byte[] data = baos.toByteArray();
-        return BitmapFactory.decodeByteArray(data, 0, data.length);
-    }
-
     private void handlePredictionError(Exception e) {
-        runOnUiThread(() -> {
-            predictButton.setEnabled(true);
-            resultTextView.setText("Error predicting disease: " + e.getMessage());
-            Log.e(TAG, "Error predicting disease", e);
-        });
+        predictionFinished();
+        predictButton.setEnabled(true);
+        resultTextView.setText("Error predicting disease: " + e.getMessage());
+        Log.e(TAG, "Error predicting disease", e);
     }
     private void messaging(){
         Intent intent = new Intent(MainActivity.this, MessageActivity.class);
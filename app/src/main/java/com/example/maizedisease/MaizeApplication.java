@@ -0,0 +1,115 @@
+package com.example.maizedisease;
+
+import android.app.Application;
+import android.database.sqlite.SQLiteException;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MaizeApplication extends Application {
+
+    private static final String TAG = "MaizeApplication";
+    private static final AtomicBoolean firstPredictionLogged = new AtomicBoolean();
+
+    // Startup work runs here first, so anything queued afterwards runs once it is done
+    private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        MetricsActivity.applySavedSetting(this);
+        startupExecutor.execute(this::runStartupTasks);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        BitmapPool.getInstance(this).onTrimMemory(level);
+    }
+
+    // Runs on a background thread after startup work has finished, straight away if it already has
+    public void runAfterStartup(Runnable callback) {
+        startupExecutor.execute(callback);
+    }
+
+    // Logs process start to the first prediction on screen, once per process
+    public static void onPredictionShown() {
+        if (firstPredictionLogged.compareAndSet(false, true)) {
+            Log.i(TAG, "Cold start to first prediction: " + sinceProcessStartMs() + " ms");
+        }
+    }
+
+    static long sinceProcessStartMs() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+
+    private void startShadowEvaluation(InferenceEngine engine, ModelRegistry registry) {
+        ModelRegistry.Model candidate = registry.getCandidate();
+        if (candidate == null) {
+            return;
+        }
+        try {
+            if (registry.verify(candidate)) {
+                engine.setShadowEvaluator(new ShadowEvaluator(this, candidate, ShadowEvaluator.DEFAULT_SAMPLE_RATE));
+            } else {
+                Log.e(TAG, "Checksum mismatch for shadow model " + candidate.version);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error checking shadow model " + candidate.version, e);
+        }
+    }
+
+    private void runStartupTasks() {
+        long start = SystemClock.elapsedRealtime();
+        // Models dropped into filesDir/models/incoming are installed first, so warm-up loads the active one
+        ModelRegistry registry = null;
+        try {
+            registry = ModelRegistry.getInstance(this);
+            for (ModelRegistry.Model model : registry.importPending()) {
+                Log.i(TAG, "Installed model " + model);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening model registry", e);
+        }
+
+        // Load the model once for the whole process and warm it up off the UI thread
+        InferenceEngine engine = InferenceEngine.getInstance(this);
+        try {
+            engine.warmUp();
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading model", e);
+        }
+        if (registry != null) {
+            startShadowEvaluation(engine, registry);
+        }
+
+        // Both read their persisted state from disk on first use
+        FirebaseAuth.getInstance();
+        FirebaseDatabase.getInstance();
+        // Opens the chat database now, so a chat screen's first read does not create or upgrade it
+        try {
+            ChatStore.getInstance(this).getReadableDatabase();
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Error opening chat store", e);
+        }
+
+        // Jobs are persisted, but reschedule in case the app was updated or force-stopped meanwhile
+        try {
+            if (!ScanQueue.getInstance(this).nextPending(1).isEmpty()) {
+                ScanQueueJobService.schedule(this);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening scan queue", e);
+        }
+        Log.i(TAG, "Startup work done in " + (SystemClock.elapsedRealtime() - start) + " ms, "
+                + sinceProcessStartMs() + " ms after process start");
+    }
+}
@@ -19,8 +19,11 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class MessageActivity extends AppCompatActivity {
 
@@ -31,7 +34,8 @@ public class MessageActivity extends AppCompatActivity {
     private String currentUserType;
     private ImageView backButton, logoutButton;
     private FirebaseUser currentUser;
-    private Set<String> userIds;
+    private final FrameBatcher userUpdates = new FrameBatcher(this::showUsers);
+    private List<UserModel> pendingUsers;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -60,9 +64,6 @@ public class MessageActivity extends AppCompatActivity {
 
         // Get the current user's type and userId
         getCurrentUserTypeAndUserId();
-
-        // Initialize userIds set
-        userIds = new HashSet<>();
     }
 
     private void getCurrentUserTypeAndUserId() {
@@ -88,8 +89,7 @@ public class MessageActivity extends AppCompatActivity {
     }
 
     private void readUserData() {
-        userAdapter.clearUsers();
-        userIds.clear();
+        userAdapter.submitList(Collections.emptyList());
 
         if (currentUserType != null && currentUserType.equals("farmer")) {
             // If the current user is a farmer, display officers
@@ -133,6 +133,8 @@ public class MessageActivity extends AppCompatActivity {
     }
 
     private void readUserDataFromSnapshot(DataSnapshot snapshot) {
+        // Keyed by userId so a user listed twice shows once
+        Map<String, UserModel> users = new LinkedHashMap<>();
         // Iterate through user data
         for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
             String userId = dataSnapshot.getKey();
@@ -141,11 +143,10 @@ public class MessageActivity extends AppCompatActivity {
             if (userId != null && !userId.equals(currentUser.getUid())) {
                 UserModel userModel = dataSnapshot.getValue(UserModel.class);
 
-                // Add user to adapter if userModel is not null
+                // Add user to the list if userModel is not null
                 if (userModel != null) {
-                    if (!userIds.contains(userModel.getUserId())) {
-                        userIds.add(userModel.getUserId());
-                        userAdapter.addUser(userModel);
+                    if (!users.containsKey(userModel.getUserId())) {
+                        users.put(userModel.getUserId(), userModel);
                     }
                 } else {
                     // Log if deserialization fails
@@ -154,6 +155,20 @@ public class MessageActivity extends AppCompatActivity {
                 }
             }
         }
+
+        // The cached and the server copy often arrive back to back; only the newest is diffed
+        pendingUsers = new ArrayList<>(users.values());
+        userUpdates.schedule();
+    }
+
+    private void showUsers() {
+        userAdapter.submitList(Collections.unmodifiableList(pendingUsers));
+    }
+
+    @Override
+    protected void onDestroy() {
+        userUpdates.cancel();
+        super.onDestroy();
     }
 
     private void showErrorToast(String message) {
@@ -9,33 +9,41 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
+
+// Shows snapshots of a chat room. submitList() diffs each snapshot against the last one on a
+// background thread and only the messages that changed are rebound.
+public class MessageAdapter extends ListAdapter<MessageModel, MessageAdapter.MyViewHolder> {
+
+    static final DiffUtil.ItemCallback<MessageModel> DIFF = new DiffUtil.ItemCallback<MessageModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull MessageModel oldItem, @NonNull MessageModel newItem) {
+            return Objects.equals(oldItem.getMsgid(), newItem.getMsgid());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull MessageModel oldItem, @NonNull MessageModel newItem) {
+            return Objects.equals(oldItem.getSenderId(), newItem.getSenderId())
+                    && Objects.equals(oldItem.getMessage(), newItem.getMessage());
+        }
+    };
 
-public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MyViewHolder> {
     private Context context;
-    private List<MessageModel> messageModelList;
+    private final StableIds stableIds = new StableIds();
     private static final int MESSAGE_TYPE_SENT = 1;
     private static final int MESSAGE_TYPE_RECEIVED = 2;
     private String currentUserUserId;
     private int spacing = 16;
 
     public MessageAdapter(Context context, String currentUserUserId) {
+        super(DIFF);
         this.context = context;
         this.currentUserUserId = currentUserUserId;
-        this.messageModelList = new ArrayList<>();
-    }
-
-    public void add(MessageModel messageModel) {
-        messageModelList.add(messageModel);
-        notifyDataSetChanged();
-    }
-
-    public void clear() {
-        messageModelList.clear();
-        notifyDataSetChanged();
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -52,7 +60,7 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MyViewHo
 
     @Override
     public void onBindViewHolder(@NonNull MyViewHolder holder, int position) {
-        MessageModel messageModel = messageModelList.get(position);
+        MessageModel messageModel = getItem(position);
         holder.messageTextView.setText(messageModel.getMessage());
 
         LinearLayout.LayoutParams params = (LinearLayout.LayoutParams) holder.messageTextView.getLayoutParams();
@@ -69,13 +77,13 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MyViewHo
     }
 
     @Override
-    public int getItemCount() {
-        return messageModelList.size();
+    public long getItemId(int position) {
+        return stableIds.get(getItem(position).getMsgid());
     }
 
     @Override
     public int getItemViewType(int position) {
-        MessageModel message = messageModelList.get(position);
+        MessageModel message = getItem(position);
         if (message.getSenderId() != null && message.getSenderId().equals(currentUserUserId)) {
             return MESSAGE_TYPE_SENT;
         } else {
@@ -0,0 +1,203 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SwitchCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Debug screen for the per-stage prediction timings and installed models. Reached by long-pressing
+// the title on the main screen in debug builds.
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "MetricsActivity";
+    private static final String PREFS = "pipeline_metrics";
+    private static final String KEY_ENABLED = "enabled";
+
+    private TextView metricsTextView;
+    private ImageView backButton, logoutButton;
+    // Model swaps load a whole interpreter, so they stay off the UI thread
+    private final ExecutorService modelExecutor = Executors.newSingleThreadExecutor();
+
+    // Called once at startup so the setting survives restarts; on by default in debug builds
+    static void applySavedSetting(Context context) {
+        PipelineMetrics.setEnabled(context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+                .getBoolean(KEY_ENABLED, BuildConfig.DEBUG));
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        metricsTextView = findViewById(R.id.metricsTextView);
+        backButton = findViewById(R.id.back_button);
+        logoutButton = findViewById(R.id.logout_button);
+        SwitchCompat metricsSwitch = findViewById(R.id.metricsSwitch);
+        Button refreshButton = findViewById(R.id.refreshMetricsButton);
+        Button resetButton = findViewById(R.id.resetMetricsButton);
+        Button dumpButton = findViewById(R.id.dumpMetricsButton);
+        Button modelsButton = findViewById(R.id.modelsButton);
+
+        backButton.setOnClickListener(v -> finish());
+        logoutButton.setVisibility(ImageView.GONE);
+
+        metricsSwitch.setChecked(PipelineMetrics.isEnabled());
+        metricsSwitch.setOnCheckedChangeListener((button, checked) -> {
+            PipelineMetrics.setEnabled(checked);
+            getSharedPreferences(PREFS, MODE_PRIVATE).edit().putBoolean(KEY_ENABLED, checked).apply();
+        });
+        refreshButton.setOnClickListener(v -> refresh());
+        resetButton.setOnClickListener(v -> {
+            PipelineMetrics.reset();
+            refresh();
+        });
+        dumpButton.setOnClickListener(v -> dump());
+        modelsButton.setOnClickListener(v -> showModels());
+    }
+
+    @Override
+    protected void onDestroy() {
+        modelExecutor.shutdown();
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        InferenceEngine engine = InferenceEngine.getInstance(this);
+        ShadowEvaluator shadow = engine.getShadowEvaluator();
+        metricsTextView.setText(PipelineMetrics.summary()
+                + "\nTimes in ms, percentiles within about 12%\n\n"
+                + "Model: " + engine.getModelDescription() + " load=" + engine.getLoadTimeMs() + "ms cold=" + engine.getColdLatencyMs()
+                + "ms warm=" + engine.getWarmLatencyMs() + "ms\n"
+                + "Cache: " + engine.getCacheStats() + "\n"
+                + "Bitmap pool: " + BitmapPool.getInstance(this).getStats() + "\n"
+                + "Scheduler: " + InferenceScheduler.getInstance(this).getMetricsSummary() + "\n"
+                + "Shadow: " + (shadow != null ? shadow.getStats() : "off"));
+    }
+
+    private void showModels() {
+        ModelRegistry registry;
+        try {
+            registry = ModelRegistry.getInstance(this);
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening model registry", e);
+            Toast.makeText(this, "Could not open model registry", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        List<ModelRegistry.Model> models = registry.getModels();
+        ModelRegistry.Model active = registry.getActive();
+        ModelRegistry.Model candidate = registry.getCandidate();
+        String[] items = new String[models.size() + 1];
+        items[0] = "Bundled model" + (active == null ? " (serving)" : "");
+        for (int i = 0; i < models.size(); i++) {
+            ModelRegistry.Model model = models.get(i);
+            items[i + 1] = model + (model == active ? " (serving)" : "") + (model == candidate ? " (shadow)" : "");
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Models")
+                .setItems(items, (dialog, which) -> {
+                    if (which == 0) {
+                        runModelChange(() -> {
+                            registry.setActive(null);
+                            InferenceEngine.getInstance(this).swapModel(null);
+                        });
+                    } else {
+                        showModelActions(registry, models.get(which - 1), candidate);
+                    }
+                })
+                .show();
+    }
+
+    private void showModelActions(ModelRegistry registry, ModelRegistry.Model model, ModelRegistry.Model candidate) {
+        boolean shadowing = model == candidate;
+        String[] actions = {"Serve", shadowing ? "Stop shadow test" : "Shadow test", "Remove"};
+        new AlertDialog.Builder(this)
+                .setTitle(model.version)
+                .setItems(actions, (dialog, which) -> {
+                    InferenceEngine engine = InferenceEngine.getInstance(this);
+                    switch (which) {
+                        case 0:
+                            runModelChange(() -> {
+                                if (!registry.verify(model)) {
+                                    throw new IOException("Checksum mismatch for " + model.version);
+                                }
+                                // Load first, so a model that does not open never becomes the saved choice
+                                engine.swapModel(model);
+                                registry.setActive(model.version);
+                                if (shadowing) {
+                                    engine.setShadowEvaluator(null);
+                                }
+                            });
+                            break;
+                        case 1:
+                            runModelChange(() -> {
+                                registry.setCandidate(shadowing ? null : model.version);
+                                engine.setShadowEvaluator(shadowing ? null
+                                        : new ShadowEvaluator(this, model, ShadowEvaluator.DEFAULT_SAMPLE_RATE));
+                            });
+                            break;
+                        default:
+                            runModelChange(() -> registry.remove(model.version));
+                            break;
+                    }
+                })
+                .show();
+    }
+
+    private interface ModelChange {
+        void run() throws IOException;
+    }
+
+    private void runModelChange(ModelChange change) {
+        modelExecutor.execute(() -> {
+            String message;
+            try {
+                change.run();
+                message = "Serving " + InferenceEngine.getInstance(this).getModelDescription();
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error changing models", e);
+                message = "Could not change models: " + e.getMessage();
+            }
+            String toast = message;
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    Toast.makeText(this, toast, Toast.LENGTH_LONG).show();
+                    refresh();
+                }
+            });
+        });
+    }
+
+    // App-specific external storage, so the file can be pulled with adb without root
+    private void dump() {
+        File directory = getExternalFilesDir("metrics");
+        if (directory == null) {
+            directory = new File(getFilesDir(), "metrics");
+        }
+        try {
+            File file = PipelineMetrics.dump(directory);
+            Toast.makeText(this, "Saved " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving metrics", e);
+            Toast.makeText(this, "Could not save metrics", Toast.LENGTH_SHORT).show();
+        }
+    }
+}
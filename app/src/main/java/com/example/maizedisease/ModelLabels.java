@@ -0,0 +1,62 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.tensorflow.lite.support.common.FileUtil;
+import org.tensorflow.lite.support.metadata.MetadataExtractor;
+import org.tensorflow.lite.support.metadata.schema.TensorMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Class labels for the model output, read once when the interpreter is created
+final class ModelLabels {
+
+    private static final String TAG = "ModelLabels";
+    static final String LABELS_ASSET = "labels.txt";
+
+    private ModelLabels() {
+    }
+
+    static String[] load(Context context, ByteBuffer model, int classCount) {
+        List<String> labels = loadFromMetadata(model);
+        if (labels == null) {
+            try {
+                labels = FileUtil.loadLabels(context, LABELS_ASSET);
+            } catch (IOException e) {
+                Log.e(TAG, "Error loading " + LABELS_ASSET, e);
+            }
+        }
+
+        String[] result = new String[classCount];
+        for (int i = 0; i < classCount; i++) {
+            result[i] = labels != null && i < labels.size() ? labels.get(i) : "Unknown";
+        }
+        if (labels == null || labels.size() != classCount) {
+            Log.w(TAG, "Expected " + classCount + " labels, found " + (labels == null ? 0 : labels.size()));
+        }
+        return result;
+    }
+
+    private static List<String> loadFromMetadata(ByteBuffer model) {
+        try {
+            MetadataExtractor extractor = new MetadataExtractor(model.duplicate());
+            if (!extractor.hasMetadata()) {
+                return null;
+            }
+            TensorMetadata output = extractor.getOutputTensorMetadata(0);
+            for (int i = 0; i < output.associatedFilesLength(); i++) {
+                String name = output.associatedFiles(i).name();
+                if (name != null) {
+                    return FileUtil.loadLabels(extractor.getAssociatedFile(name));
+                }
+            }
+        } catch (Exception e) {
+            // Models exported without packed files end up here; fall back to the asset
+            Log.w(TAG, "No labels in model metadata", e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Model files installed after the APK, under filesDir/models with a JSON manifest recording each
+// version and its SHA-256. One version can be active (served instead of the bundled model) and one
+// can be the shadow candidate (see ShadowEvaluator). The manifest is rewritten through a temp file
+// and a rename, like ScanQueue's. Models can also be dropped into models/incoming as
+// <version>.tflite next to a <version>.sha256 file and picked up by importPending().
+public class ModelRegistry {
+
+    public static class Model {
+        public final String version;
+        public final String sha256;
+        public final long sizeBytes;
+        public final long installedAt;
+        public final File file;
+
+        Model(String version, String sha256, long sizeBytes, long installedAt, File file) {
+            this.version = version;
+            this.sha256 = sha256;
+            this.sizeBytes = sizeBytes;
+            this.installedAt = installedAt;
+            this.file = file;
+        }
+
+        @Override
+        public String toString() {
+            return version + " (" + sizeBytes / 1024 + "KB, sha256 " + sha256.substring(0, 12) + ")";
+        }
+    }
+
+    private static final String DIRECTORY = "models";
+    private static final String INCOMING = "incoming";
+    private static final String MANIFEST = "manifest.json";
+    private static final String MODEL_SUFFIX = ".tflite";
+    private static final String CHECKSUM_SUFFIX = ".sha256";
+    private static final String REJECTED_SUFFIX = ".rejected";
+    private static final Pattern VERSION = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    private static ModelRegistry instance;
+
+    private final File directory;
+    private final File manifest;
+    private final List<Model> models = new ArrayList<>();
+    private String activeVersion;
+    private String candidateVersion;
+
+    public static synchronized ModelRegistry getInstance(Context context) throws IOException {
+        if (instance == null) {
+            instance = new ModelRegistry(new File(context.getApplicationContext().getFilesDir(), DIRECTORY));
+        }
+        return instance;
+    }
+
+    ModelRegistry(File directory) throws IOException {
+        this.directory = directory;
+        this.manifest = new File(directory, MANIFEST);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        load();
+    }
+
+    // Copies the model in and checks it against expectedSha256 before it becomes visible.
+    // Installing a version that already exists replaces it only if it is neither active nor the candidate.
+    public Model install(InputStream in, String version, String expectedSha256) throws IOException {
+        if (!VERSION.matcher(version).matches()) {
+            throw new IllegalArgumentException("Invalid model version " + version);
+        }
+        File temp = new File(directory, version + MODEL_SUFFIX + ".tmp");
+        MessageDigest digest = newDigest();
+        long size = 0;
+        try (OutputStream out = new FileOutputStream(temp)) {
+            byte[] chunk = new byte[COPY_CHUNK];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                digest.update(chunk, 0, read);
+                out.write(chunk, 0, read);
+                size += read;
+            }
+        }
+        String sha256 = toHex(digest.digest());
+        if (!sha256.equalsIgnoreCase(expectedSha256.trim())) {
+            temp.delete();
+            throw new IOException("Checksum mismatch for model " + version + ": expected " + expectedSha256
+                    + ", got " + sha256);
+        }
+
+        Model model;
+        synchronized (this) {
+            if (version.equals(activeVersion) || version.equals(candidateVersion)) {
+                temp.delete();
+                throw new IllegalStateException("Model " + version + " is in use");
+            }
+            File file = modelFile(version);
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Could not store " + file);
+            }
+            SharedModel.evict(file);
+            removeEntry(version);
+            model = new Model(version, sha256, size, System.currentTimeMillis(), file);
+            models.add(model);
+            save();
+        }
+        return model;
+    }
+
+    // Installs every <version>.tflite in models/incoming that has a matching checksum file.
+    // Files that fail the check are renamed to .rejected so they are not retried on every start.
+    public List<Model> importPending() throws IOException {
+        List<Model> imported = new ArrayList<>();
+        File[] files = new File(directory, INCOMING).listFiles();
+        if (files == null) {
+            return imported;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(MODEL_SUFFIX)) {
+                continue;
+            }
+            String version = name.substring(0, name.length() - MODEL_SUFFIX.length());
+            File checksum = new File(file.getParentFile(), version + CHECKSUM_SUFFIX);
+            if (!checksum.isFile()) {
+                continue;
+            }
+            String expected = new String(readAll(checksum), StandardCharsets.UTF_8).trim().split("\\s+")[0];
+            try (InputStream in = new FileInputStream(file)) {
+                imported.add(install(in, version, expected));
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                file.renameTo(new File(file.getParentFile(), name + REJECTED_SUFFIX));
+                checksum.delete();
+                continue;
+            }
+            file.delete();
+            checksum.delete();
+        }
+        return imported;
+    }
+
+    // Re-hashes the file, so a model damaged on disk is never handed to the interpreter
+    public boolean verify(Model model) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new FileInputStream(model.file)) {
+            byte[] chunk = new byte[COPY_CHUNK];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                digest.update(chunk, 0, read);
+            }
+        }
+        return toHex(digest.digest()).equalsIgnoreCase(model.sha256);
+    }
+
+    public synchronized List<Model> getModels() {
+        return new ArrayList<>(models);
+    }
+
+    public synchronized Model getModel(String version) {
+        for (Model model : models) {
+            if (model.version.equals(version)) {
+                return model;
+            }
+        }
+        return null;
+    }
+
+    // Null while the bundled model is in use
+    public synchronized Model getActive() {
+        return activeVersion == null ? null : getModel(activeVersion);
+    }
+
+    public synchronized Model getCandidate() {
+        return candidateVersion == null ? null : getModel(candidateVersion);
+    }
+
+    // Null goes back to the bundled model. Only records the choice; InferenceEngine.swapModel loads it.
+    public synchronized Model setActive(String version) throws IOException {
+        Model model = version == null ? null : require(version);
+        activeVersion = version;
+        if (version != null && version.equals(candidateVersion)) {
+            candidateVersion = null;
+        }
+        save();
+        return model;
+    }
+
+    public synchronized Model setCandidate(String version) throws IOException {
+        Model model = version == null ? null : require(version);
+        if (version != null && version.equals(activeVersion)) {
+            throw new IllegalStateException("Model " + version + " is already active");
+        }
+        candidateVersion = version;
+        save();
+        return model;
+    }
+
+    public void remove(String version) throws IOException {
+        File file;
+        synchronized (this) {
+            if (version.equals(activeVersion) || version.equals(candidateVersion)) {
+                throw new IllegalStateException("Model " + version + " is in use");
+            }
+            Model model = require(version);
+            removeEntry(version);
+            save();
+            file = model.file;
+        }
+        SharedModel.evict(file);
+        file.delete();
+    }
+
+    private Model require(String version) {
+        Model model = getModel(version);
+        if (model == null) {
+            throw new IllegalArgumentException("No installed model " + version);
+        }
+        return model;
+    }
+
+    private void removeEntry(String version) {
+        for (int i = 0; i < models.size(); i++) {
+            if (models.get(i).version.equals(version)) {
+                models.remove(i);
+                return;
+            }
+        }
+    }
+
+    private File modelFile(String version) {
+        return new File(directory, version + MODEL_SUFFIX);
+    }
+
+    private void load() throws IOException {
+        if (!manifest.exists()) {
+            return;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(readAll(manifest), StandardCharsets.UTF_8));
+            JSONArray array = json.getJSONArray("models");
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject entry = array.getJSONObject(i);
+                String version = entry.getString("version");
+                File file = modelFile(version);
+                // A file deleted behind our back cannot be served
+                if (!file.isFile()) {
+                    continue;
+                }
+                models.add(new Model(version, entry.getString("sha256"), entry.getLong("size"),
+                        entry.getLong("installedAt"), file));
+            }
+            activeVersion = json.optString("active", null);
+            candidateVersion = json.optString("candidate", null);
+        } catch (JSONException e) {
+            throw new IOException("Corrupt model manifest", e);
+        }
+        if (activeVersion != null && getModel(activeVersion) == null) {
+            activeVersion = null;
+        }
+        if (candidateVersion != null && getModel(candidateVersion) == null) {
+            candidateVersion = null;
+        }
+    }
+
+    private void save() throws IOException {
+        JSONObject json = new JSONObject();
+        try {
+            JSONArray array = new JSONArray();
+            for (Model model : models) {
+                JSONObject entry = new JSONObject();
+                entry.put("version", model.version);
+                entry.put("sha256", model.sha256);
+                entry.put("size", model.sizeBytes);
+                entry.put("installedAt", model.installedAt);
+                array.put(entry);
+            }
+            json.put("models", array);
+            if (activeVersion != null) {
+                json.put("active", activeVersion);
+            }
+            if (candidateVersion != null) {
+                json.put("candidate", candidateVersion);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Could not write model manifest", e);
+        }
+        File temp = new File(directory, MANIFEST + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(manifest)) {
+            throw new IOException("Could not replace " + manifest);
+        }
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        }
+        return bytes;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format(Locale.US, "%02x", b));
+        }
+        return hex.toString();
+    }
+}
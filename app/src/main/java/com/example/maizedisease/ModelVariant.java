@@ -0,0 +1,26 @@
+package com.example.maizedisease;
+
+import android.util.Log;
+
+// Model files the engine can run. The shipped variant is chosen by BuildConfig.MODEL_VARIANT.
+public enum ModelVariant {
+    FLOAT32("maizeModel.tflite"),
+    QUANTIZED("maizeModel_quant.tflite");
+
+    private static final String TAG = "ModelVariant";
+
+    final String assetName;
+
+    ModelVariant(String assetName) {
+        this.assetName = assetName;
+    }
+
+    static ModelVariant fromConfig(String name) {
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Log.w(TAG, "Unknown model variant " + name + ", using " + FLOAT32);
+            return FLOAT32;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.maizedisease;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// Per-stage timers for the prediction path. Call sites do
+//     long start = PipelineMetrics.start();
+//     ...
+//     PipelineMetrics.stop(PipelineMetrics.Stage.INFERENCE, start);
+// When disabled that is one volatile read and a branch; when enabled it records into a
+// preallocated histogram without allocating.
+public final class PipelineMetrics {
+
+    public enum Stage {
+        // Gallery decode to preview size
+        DECODE,
+        // Filtered Canvas draw of the preview into a pooled model-input-sized bitmap
+        SCALE,
+        // Blur, exposure and leaf coverage check before inference
+        QUALITY_GATE,
+        // Waiting in the inference queue
+        QUEUE_WAIT,
+        // Interpreter creation, the first time or after options change
+        MODEL_LOAD,
+        // Bitmap pixels to input tensor
+        PREPROCESS,
+        // Input hashing and prediction cache lookup
+        CACHE_LOOKUP,
+        // Interpreter.run
+        INFERENCE,
+        // Dequantize and top-k over the output
+        POSTPROCESS,
+        // Second look at a higher-resolution decode for low-confidence results
+        TILED_RETRY,
+        // Everything from the Predict button's task starting to its result
+        PREDICTION
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    private static volatile boolean enabled;
+
+    private PipelineMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        PipelineMetrics.enabled = enabled;
+    }
+
+    // 0 means "not timing", so stop() can skip without reading the flag again
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void stop(Stage stage, long startNanos) {
+        if (startNanos != 0) {
+            histograms[stage.ordinal()].recordNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    // For durations measured elsewhere, such as queue wait
+    public static void record(Stage stage, long nanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].recordNanos(nanos);
+        }
+    }
+
+    static LatencyHistogram histogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    // Fixed-width table in milliseconds for the debug screen
+    public static String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.US, "%-13s %6s %8s %8s %8s %8s%n",
+                "stage", "count", "p50", "p95", "p99", "max"));
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            summary.append(String.format(Locale.US, "%-13s %6d %8.1f %8.1f %8.1f %8.1f%n",
+                    stage.name(), histogram.getCount(),
+                    histogram.getPercentileMicros(50) / 1000.0, histogram.getPercentileMicros(95) / 1000.0,
+                    histogram.getPercentileMicros(99) / 1000.0, histogram.getMaxMicros() / 1000.0));
+        }
+        return summary.toString();
+    }
+
+    public static JSONObject toJson() throws JSONException {
+        JSONObject report = new JSONObject();
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("enabled", enabled);
+        JSONArray stages = new JSONArray();
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            JSONObject json = new JSONObject();
+            json.put("stage", stage.name());
+            json.put("count", histogram.getCount());
+            json.put("meanUs", histogram.getMeanMicros());
+            json.put("p50Us", histogram.getPercentileMicros(50));
+            json.put("p95Us", histogram.getPercentileMicros(95));
+            json.put("p99Us", histogram.getPercentileMicros(99));
+            json.put("maxUs", histogram.getMaxMicros());
+            stages.put(json);
+        }
+        report.put("stages", stages);
+        return report;
+    }
+
+    public static File dump(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File file = new File(directory, "pipeline_metrics_" + System.currentTimeMillis() + ".json");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException("Could not write metrics", e);
+        }
+        return file;
+    }
+}
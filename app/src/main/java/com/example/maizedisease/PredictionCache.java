@@ -0,0 +1,248 @@
+package com.example.maizedisease;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Scores for images the model has already seen, keyed by a hash of the model input.
+// A perceptual hash also matches near-identical re-encodes of the same photo, as long as the mean
+// colour agrees too: the hash only sees luma structure, which different leaves can share.
+// Entries live in a small in-memory LRU backed by a directory per model, so a new model never
+// serves scores computed by the old one. Not thread-safe: InferenceEngine calls it under its lock.
+// Disk writes, trims and deletes run in order on diskExecutor, so a put never waits on the disk.
+class PredictionCache {
+
+    // Kept tight: different leaves with the same disease can still have similar coarse structure
+    static final int NEAR_MATCH_MAX_DISTANCE = 3;
+    // Per channel, out of 255; a re-encode moves the mean by a level or two
+    static final int NEAR_MATCH_MAX_COLOR_DIFFERENCE = 6;
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Part of each model's directory name, so entries written in an older layout are dropped
+    private static final String FORMAT = "@2";
+
+    private static class Entry {
+        final float[] scores;
+        final long perceptualHash;
+        final int meanColor;
+
+        Entry(float[] scores, long perceptualHash, int meanColor) {
+            this.scores = scores;
+            this.perceptualHash = perceptualHash;
+            this.meanColor = meanColor;
+        }
+    }
+
+    private final File rootDir;
+    private final int memoryEntries;
+    private final int diskEntries;
+    private final LinkedHashMap<String, Entry> memory;
+    private final Executor diskExecutor;
+    private File modelDir;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    PredictionCache(File rootDir, int memoryEntries, int diskEntries, Executor diskExecutor) {
+        this.rootDir = rootDir;
+        this.memoryEntries = memoryEntries;
+        this.diskEntries = diskEntries;
+        this.diskExecutor = diskExecutor;
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PredictionCache.this.memoryEntries;
+            }
+        };
+    }
+
+    // Drops everything cached for any other model
+    void setModelId(String modelId) {
+        memory.clear();
+        String dirName = modelId + FORMAT;
+        File dir = new File(rootDir, dirName);
+        modelDir = dir;
+        // Queued behind any writes for the old model, so none of them lands after the delete
+        diskExecutor.execute(() -> {
+            File[] dirs = rootDir.listFiles();
+            if (dirs != null) {
+                for (File other : dirs) {
+                    if (!other.getName().equals(dirName)) {
+                        deleteRecursively(other);
+                    }
+                }
+            }
+            dir.mkdirs();
+        });
+    }
+
+    float[] get(String key, long perceptualHash, int meanColor) {
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.scores;
+        }
+        entry = readFromDisk(key);
+        if (entry != null) {
+            diskHits.incrementAndGet();
+            memory.put(key, entry);
+            return entry.scores;
+        }
+        for (Entry candidate : memory.values()) {
+            if (Long.bitCount(candidate.perceptualHash ^ perceptualHash) <= NEAR_MATCH_MAX_DISTANCE
+                    && colorDifference(candidate.meanColor, meanColor) <= NEAR_MATCH_MAX_COLOR_DIFFERENCE) {
+                nearHits.incrementAndGet();
+                return candidate.scores;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(String key, long perceptualHash, int meanColor, float[] scores) {
+        Entry entry = new Entry(Arrays.copyOf(scores, scores.length), perceptualHash, meanColor);
+        memory.put(key, entry);
+        File dir = modelDir;
+        if (dir != null) {
+            diskExecutor.execute(() -> writeToDisk(dir, key, entry));
+        }
+    }
+
+    long getHits() {
+        return hits.get() + diskHits.get() + nearHits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    String getStats() {
+        return "hits=" + hits.get() + " diskHits=" + diskHits.get() + " nearHits=" + nearHits.get()
+                + " misses=" + misses.get() + " memoryEntries=" + memory.size();
+    }
+
+    // 64-bit difference hash: 9x8 block-averaged grayscale, one bit per horizontal neighbour comparison
+    static long differenceHash(int[] pixels, int size) {
+        int cellWidth = size / 9;
+        int cellHeight = size / 8;
+        long hash = 0;
+        for (int row = 0; row < 8; row++) {
+            int previous = cellLuma(pixels, size, 0, row * cellHeight, cellWidth, cellHeight);
+            for (int col = 1; col < 9; col++) {
+                int current = cellLuma(pixels, size, col * cellWidth, row * cellHeight, cellWidth, cellHeight);
+                hash = (hash << 1) | (current > previous ? 1 : 0);
+                previous = current;
+            }
+        }
+        return hash;
+    }
+
+    // Average R, G and B packed as 0xRRGGBB
+    static int meanColor(int[] pixels) {
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int pixel : pixels) {
+            red += (pixel >> 16) & 0xFF;
+            green += (pixel >> 8) & 0xFF;
+            blue += pixel & 0xFF;
+        }
+        int count = pixels.length;
+        return (int) (red / count) << 16 | (int) (green / count) << 8 | (int) (blue / count);
+    }
+
+    // Largest per-channel difference between two packed colours
+    private static int colorDifference(int a, int b) {
+        int red = Math.abs(((a >> 16) & 0xFF) - ((b >> 16) & 0xFF));
+        int green = Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF));
+        int blue = Math.abs((a & 0xFF) - (b & 0xFF));
+        return Math.max(red, Math.max(green, blue));
+    }
+
+    private static int cellLuma(int[] pixels, int stride, int left, int top, int width, int height) {
+        long sum = 0;
+        for (int y = top; y < top + height; y++) {
+            for (int x = left; x < left + width; x++) {
+                int pixel = pixels[y * stride + x];
+                // Integer Rec. 601 luma
+                sum += (((pixel >> 16) & 0xFF) * 299 + ((pixel >> 8) & 0xFF) * 587 + (pixel & 0xFF) * 114) / 1000;
+            }
+        }
+        return (int) (sum / (width * height));
+    }
+
+    private Entry readFromDisk(String key) {
+        if (modelDir == null) {
+            return null;
+        }
+        File file = new File(modelDir, key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            long perceptualHash = in.readLong();
+            int meanColor = in.readInt();
+            float[] scores = new float[in.readInt()];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = in.readFloat();
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(scores, perceptualHash, meanColor);
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(File dir, String key, Entry entry) {
+        // Written aside and renamed, so a concurrent readFromDisk never sees half an entry
+        File temp = new File(dir, key + TEMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeLong(entry.perceptualHash);
+            out.writeInt(entry.meanColor);
+            out.writeInt(entry.scores.length);
+            for (float score : entry.scores) {
+                out.writeFloat(score);
+            }
+        } catch (IOException e) {
+            // The disk tier is best effort; the entry is still in memory
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(new File(dir, key))) {
+            temp.delete();
+            return;
+        }
+        trimDisk(dir);
+    }
+
+    private void trimDisk(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= diskEntries) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - diskEntries; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -65,7 +65,7 @@ public class ResultsActivity extends AppCompatActivity {
         }
 
         // Retrieve prediction result and fungicide list from intent
-        String predictionResult = getIntent().getStringExtra("ResultActivity");
+        ClassificationResult predictionResult = getIntent().getParcelableExtra("classificationResult");
         ArrayList<FungicideModel> fungicideList = getIntent().getParcelableArrayListExtra("fungicideList");
         if (fungicideList == null) {
             fungicideList = new ArrayList<>();
@@ -73,7 +73,7 @@ public class ResultsActivity extends AppCompatActivity {
 
         // Set the prediction result to the outputTextView
         if (predictionResult != null) {
-            outputTextView.setText(predictionResult);
+            outputTextView.setText(predictionResult.getTopLabel());
         }
 
         // Set up the RecyclerView and adapter
@@ -0,0 +1,157 @@
+package com.example.maizedisease;
+
+import android.Manifest;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.graphics.SurfaceTexture;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.Surface;
+import android.view.TextureView;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.Locale;
+
+// Classifies the camera feed continuously, showing the latest top label and throughput
+public class ScanActivity extends AppCompatActivity {
+
+    private static final String TAG = "ScanActivity";
+    private static final int REQUEST_CAMERA_PERMISSION = 2;
+    private static final int PREVIEW_WIDTH = 640;
+    private static final int PREVIEW_HEIGHT = 480;
+
+    private TextureView previewView;
+    private TextView liveLabelTextView, liveStatsTextView;
+    private ImageView backButton, logoutButton;
+    private LiveScanner scanner;
+    private Surface previewSurface;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_scan);
+
+        previewView = findViewById(R.id.previewView);
+        liveLabelTextView = findViewById(R.id.liveLabelTextView);
+        liveStatsTextView = findViewById(R.id.liveStatsTextView);
+        backButton = findViewById(R.id.back_button);
+        logoutButton = findViewById(R.id.logout_button);
+
+        backButton.setOnClickListener(v -> finish());
+        logoutButton.setOnClickListener(v -> logout());
+
+        previewView.setSurfaceTextureListener(new TextureView.SurfaceTextureListener() {
+            @Override
+            public void onSurfaceTextureAvailable(@NonNull SurfaceTexture surface, int width, int height) {
+                startScanning();
+            }
+
+            @Override
+            public void onSurfaceTextureSizeChanged(@NonNull SurfaceTexture surface, int width, int height) {
+            }
+
+            @Override
+            public boolean onSurfaceTextureDestroyed(@NonNull SurfaceTexture surface) {
+                stopScanning();
+                return true;
+            }
+
+            @Override
+            public void onSurfaceTextureUpdated(@NonNull SurfaceTexture surface) {
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.CAMERA}, REQUEST_CAMERA_PERMISSION);
+        } else if (previewView.isAvailable()) {
+            startScanning();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        stopScanning();
+        super.onPause();
+    }
+
+    private void startScanning() {
+        if (scanner != null
+                || ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        SurfaceTexture texture = previewView.getSurfaceTexture();
+        texture.setDefaultBufferSize(PREVIEW_WIDTH, PREVIEW_HEIGHT);
+        previewSurface = new Surface(texture);
+
+        InferenceEngine engine = InferenceEngine.getInstance(this);
+        scanner = new LiveScanner(new Camera2FrameSource(this, previewSurface), engine::classifyFrame,
+                ContextCompat.getMainExecutor(this));
+        scanner.start(new LiveScanner.Listener() {
+            @Override
+            public void onResult(ClassificationResult result) {
+                showResult(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error classifying frame", e);
+            }
+        });
+    }
+
+    private void stopScanning() {
+        if (scanner != null) {
+            Log.i(TAG, String.format(Locale.US, "Live scan stopped: %d received, %d classified, %d dropped, %.1f fps",
+                    scanner.getReceivedFrames(), scanner.getProcessedFrames(), scanner.getDroppedFrames(),
+                    scanner.getFramesPerSecond()));
+            scanner.stop();
+            scanner = null;
+        }
+        if (previewSurface != null) {
+            previewSurface.release();
+            previewSurface = null;
+        }
+    }
+
+    private void showResult(ClassificationResult result) {
+        // Results can still be queued on the main thread after stop()
+        if (scanner == null) {
+            return;
+        }
+        liveLabelTextView.setText(String.format(Locale.US, "%s (%.0f%%)",
+                result.getTopLabel(), result.getTopScore() * 100f));
+        liveStatsTextView.setText(String.format(Locale.US, "%.1f fps, %d frames dropped",
+                scanner.getFramesPerSecond(), scanner.getDroppedFrames()));
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CAMERA_PERMISSION) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                if (previewView.isAvailable()) {
+                    startScanning();
+                }
+            } else {
+                Toast.makeText(this, "Camera permission denied. Cannot scan live.", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }
+    }
+
+    private void logout() {
+        Intent intent = new Intent(ScanActivity.this, SignIn.class);
+        startActivity(intent);
+    }
+}
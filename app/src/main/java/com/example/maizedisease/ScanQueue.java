@@ -0,0 +1,272 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Images waiting for background classification, kept under filesDir/scan_queue with a JSON manifest.
+// Every change rewrites the manifest through a temp file and a rename, so the queue survives the
+// process being killed at any point.
+public class ScanQueue {
+
+    public enum Status { PENDING, DONE, FAILED }
+
+    public interface Listener {
+        // Called on whichever thread changed the queue
+        void onQueueChanged();
+    }
+
+    public static class Entry {
+        public final String id;
+        public final long queuedAt;
+        public final Status status;
+        public final String label;
+        public final float score;
+        public final String error;
+
+        Entry(String id, long queuedAt, Status status, String label, float score, String error) {
+            this.id = id;
+            this.queuedAt = queuedAt;
+            this.status = status;
+            this.label = label;
+            this.score = score;
+            this.error = error;
+        }
+    }
+
+    private static final String DIRECTORY = "scan_queue";
+    private static final String MANIFEST = "manifest.json";
+    private static final String IMAGE_SUFFIX = ".png";
+
+    private static ScanQueue instance;
+
+    private final File directory;
+    private final File manifest;
+    private final List<Entry> entries = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public static synchronized ScanQueue getInstance(Context context) throws IOException {
+        if (instance == null) {
+            instance = new ScanQueue(new File(context.getApplicationContext().getFilesDir(), DIRECTORY));
+        }
+        return instance;
+    }
+
+    ScanQueue(File directory) throws IOException {
+        this.directory = directory;
+        this.manifest = new File(directory, MANIFEST);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        load();
+    }
+
+    // PNG keeps the queued pixels identical to what the model would have seen immediately
+    public String enqueue(Bitmap bitmap) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        if (!bitmap.compress(Bitmap.CompressFormat.PNG, 100, encoded)) {
+            throw new IOException("Could not encode image");
+        }
+        return enqueue(encoded.toByteArray());
+    }
+
+    String enqueue(byte[] encodedImage) throws IOException {
+        String id = UUID.randomUUID().toString();
+        File image = getImageFile(id);
+        File temp = new File(directory, id + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(encodedImage);
+        }
+        if (!temp.renameTo(image)) {
+            temp.delete();
+            throw new IOException("Could not store " + image);
+        }
+        synchronized (this) {
+            entries.add(new Entry(id, System.currentTimeMillis(), Status.PENDING, null, 0f, null));
+            save();
+        }
+        notifyListeners();
+        return id;
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    // Oldest first, so a long queue finishes in the order it was filled
+    public synchronized List<Entry> nextPending(int max) {
+        List<Entry> pending = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.status == Status.PENDING) {
+                pending.add(entry);
+                if (pending.size() == max) {
+                    break;
+                }
+            }
+        }
+        return pending;
+    }
+
+    public File getImageFile(Entry entry) {
+        return getImageFile(entry.id);
+    }
+
+    public void markDone(String id, ClassificationResult result) throws IOException {
+        update(id, Status.DONE, result.getTopLabel(), result.getTopScore(), null);
+    }
+
+    public void markFailed(String id, String error) throws IOException {
+        update(id, Status.FAILED, null, 0f, error);
+    }
+
+    // Drops finished entries and their images; pending ones are kept
+    public void removeFinished() throws IOException {
+        synchronized (this) {
+            List<Entry> kept = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.status == Status.PENDING) {
+                    kept.add(entry);
+                } else {
+                    getImageFile(entry.id).delete();
+                }
+            }
+            entries.clear();
+            entries.addAll(kept);
+            save();
+        }
+        notifyListeners();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void update(String id, Status status, String label, float score, String error) throws IOException {
+        synchronized (this) {
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (entry.id.equals(id)) {
+                    entries.set(i, new Entry(id, entry.queuedAt, status, label, score, error));
+                    save();
+                    break;
+                }
+            }
+        }
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.onQueueChanged();
+        }
+    }
+
+    private File getImageFile(String id) {
+        return new File(directory, id + IMAGE_SUFFIX);
+    }
+
+    private void load() throws IOException {
+        if (!manifest.exists()) {
+            deleteOrphans();
+            return;
+        }
+        byte[] bytes = new byte[(int) manifest.length()];
+        try (InputStream in = new FileInputStream(manifest)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        }
+        try {
+            JSONArray array = new JSONArray(new String(bytes, StandardCharsets.UTF_8));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject json = array.getJSONObject(i);
+                String id = json.getString("id");
+                // An image that never made it to disk cannot be classified
+                if (!getImageFile(id).exists()) {
+                    continue;
+                }
+                entries.add(new Entry(id, json.getLong("queuedAt"), Status.valueOf(json.getString("status")),
+                        json.optString("label", null), (float) json.optDouble("score", 0),
+                        json.optString("error", null)));
+            }
+        } catch (JSONException | IllegalArgumentException e) {
+            throw new IOException("Corrupt scan queue manifest", e);
+        }
+        deleteOrphans();
+    }
+
+    // Images written just before the process died, without a manifest entry yet
+    private void deleteOrphans() {
+        Set<String> known = new HashSet<>();
+        known.add(MANIFEST);
+        for (Entry entry : entries) {
+            known.add(entry.id + IMAGE_SUFFIX);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!known.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        JSONArray array = new JSONArray();
+        try {
+            for (Entry entry : entries) {
+                JSONObject json = new JSONObject();
+                json.put("id", entry.id);
+                json.put("queuedAt", entry.queuedAt);
+                json.put("status", entry.status.name());
+                if (entry.label != null) {
+                    json.put("label", entry.label);
+                    json.put("score", (double) entry.score);
+                }
+                if (entry.error != null) {
+                    json.put("error", entry.error);
+                }
+                array.put(json);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Could not write scan queue manifest", e);
+        }
+        File temp = new File(directory, MANIFEST + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(array.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(manifest)) {
+            throw new IOException("Could not replace " + manifest);
+        }
+    }
+}
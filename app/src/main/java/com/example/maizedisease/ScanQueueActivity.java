@@ -0,0 +1,155 @@
+package com.example.maizedisease;
+
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Images picked here are stored and classified later by ScanQueueJobService, so a whole field's
+// worth of photos can be queued at once and the results checked when they are ready.
+public class ScanQueueActivity extends AppCompatActivity {
+
+    private static final String TAG = "ScanQueueActivity";
+
+    private TextView summaryTextView;
+    private ImageView backButton, logoutButton;
+    private ScanQueue queue;
+    private ScanQueueAdapter adapter;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final ScanQueue.Listener queueListener = () -> runOnUiThread(this::refresh);
+
+    private ActivityResultLauncher<String> pickImagesLauncher;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_scan_queue);
+
+        summaryTextView = findViewById(R.id.queueSummaryTextView);
+        backButton = findViewById(R.id.back_button);
+        logoutButton = findViewById(R.id.logout_button);
+        Button addImagesButton = findViewById(R.id.addImagesButton);
+        Button clearFinishedButton = findViewById(R.id.clearFinishedButton);
+        RecyclerView recyclerView = findViewById(R.id.queueRecyclerView);
+
+        try {
+            queue = ScanQueue.getInstance(this);
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening scan queue", e);
+            Toast.makeText(this, "Scan queue is not available", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        adapter = new ScanQueueAdapter(queue, BitmapPool.getInstance(this));
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(adapter);
+
+        backButton.setOnClickListener(v -> finish());
+        logoutButton.setOnClickListener(v -> logout());
+        addImagesButton.setOnClickListener(v -> pickImagesLauncher.launch("image/*"));
+        clearFinishedButton.setOnClickListener(v -> ioExecutor.execute(() -> {
+            try {
+                queue.removeFinished();
+            } catch (IOException e) {
+                Log.e(TAG, "Error clearing scan queue", e);
+            }
+        }));
+
+        pickImagesLauncher = registerForActivityResult(new ActivityResultContracts.GetMultipleContents(),
+                uris -> {
+                    if (uris != null && !uris.isEmpty()) {
+                        enqueue(uris);
+                    }
+                });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        queue.addListener(queueListener);
+        refresh();
+    }
+
+    @Override
+    protected void onStop() {
+        queue.removeListener(queueListener);
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        // Lets an in-flight import finish; the queue itself is saved after every image
+        ioExecutor.shutdown();
+        if (adapter != null) {
+            adapter.release();
+        }
+        super.onDestroy();
+    }
+
+    private void enqueue(List<Uri> uris) {
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+        BitmapPool pool = BitmapPool.getInstance(this);
+        ioExecutor.execute(() -> {
+            int failed = 0;
+            for (Uri uri : uris) {
+                try {
+                    Bitmap bitmap = ImageLoader.loadModelInput(resolver, uri, pool);
+                    try {
+                        queue.enqueue(bitmap);
+                    } finally {
+                        pool.put(bitmap);
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Error queueing " + uri, e);
+                    failed++;
+                }
+            }
+            ScanQueueJobService.schedule(getApplicationContext());
+            if (failed > 0) {
+                int count = failed;
+                runOnUiThread(() -> Toast.makeText(this, count + " images could not be queued",
+                        Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    private void refresh() {
+        List<ScanQueue.Entry> entries = queue.getEntries();
+        int pending = 0;
+        int done = 0;
+        for (ScanQueue.Entry entry : entries) {
+            if (entry.status == ScanQueue.Status.PENDING) {
+                pending++;
+            } else if (entry.status == ScanQueue.Status.DONE) {
+                done++;
+            }
+        }
+        summaryTextView.setText(String.format(Locale.US, "%d waiting, %d classified, %d failed",
+                pending, done, entries.size() - pending - done));
+        adapter.submitList(entries);
+    }
+
+    private void logout() {
+        Intent intent = new Intent(ScanQueueActivity.this, SignIn.class);
+        startActivity(intent);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.maizedisease;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Shows snapshots of the scan queue. submitList() diffs each snapshot on a background thread, so a
+// markDone during a drain only rebinds that one row. Thumbnails are decoded off the main thread into
+// pooled bitmaps and cached by entry id, since an entry's image never changes.
+public class ScanQueueAdapter extends ListAdapter<ScanQueue.Entry, ScanQueueAdapter.ScanQueueViewHolder> {
+
+    static final DiffUtil.ItemCallback<ScanQueue.Entry> DIFF = new DiffUtil.ItemCallback<ScanQueue.Entry>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ScanQueue.Entry oldItem, @NonNull ScanQueue.Entry newItem) {
+            return oldItem.id.equals(newItem.id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ScanQueue.Entry oldItem, @NonNull ScanQueue.Entry newItem) {
+            return oldItem.status == newItem.status
+                    && Objects.equals(oldItem.label, newItem.label)
+                    && oldItem.score == newItem.score
+                    && Objects.equals(oldItem.error, newItem.error);
+        }
+    };
+
+    // Queued images are model sized; a quarter of that is plenty for a 64dp thumbnail
+    private static final int THUMBNAIL_SAMPLE_SIZE = 4;
+    private static final int THUMBNAIL_SIZE = InferenceEngine.INPUT_SIZE / THUMBNAIL_SAMPLE_SIZE;
+    // 16 KB each, so a couple of screens' worth costs under a megabyte
+    private static final int THUMBNAIL_CACHE_SIZE = 48;
+
+    private final ScanQueue queue;
+    private final BitmapPool pool;
+    private final StableIds stableIds = new StableIds();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor();
+    // Only touched on the main thread. Evicted thumbnails may still be on screen, so they are left
+    // to the GC; release() hands the rest back to the pool once the list is gone.
+    private final LruCache<String, Bitmap> thumbnails = new LruCache<>(THUMBNAIL_CACHE_SIZE);
+    private boolean released;
+
+    public ScanQueueAdapter(ScanQueue queue, BitmapPool pool) {
+        super(DIFF);
+        this.queue = queue;
+        this.pool = pool;
+        setHasStableIds(true);
+    }
+
+    // Call once the RecyclerView is gone
+    public void release() {
+        released = true;
+        decoder.shutdownNow();
+        for (Map.Entry<String, Bitmap> thumbnail : thumbnails.snapshot().entrySet()) {
+            pool.put(thumbnail.getValue());
+        }
+        thumbnails.evictAll();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(getItem(position).id);
+    }
+
+    @NonNull
+    @Override
+    public ScanQueueViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_scan_queue, parent, false);
+        return new ScanQueueViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ScanQueueViewHolder holder, int position) {
+        ScanQueue.Entry entry = getItem(position);
+        bindThumbnail(holder, entry);
+        switch (entry.status) {
+            case DONE:
+                holder.queueLabelTextView.setText(entry.label);
+                holder.queueStatusTextView.setText(String.format(Locale.US, "%.0f%% confidence", entry.score * 100f));
+                break;
+            case FAILED:
+                holder.queueLabelTextView.setText("Failed");
+                holder.queueStatusTextView.setText(entry.error);
+                break;
+            default:
+                holder.queueLabelTextView.setText("Waiting");
+                holder.queueStatusTextView.setText("Runs when the phone is idle or charging");
+                break;
+        }
+    }
+
+    private void bindThumbnail(ScanQueueViewHolder holder, ScanQueue.Entry entry) {
+        if (entry.id.equals(holder.thumbnailId)) {
+            return;
+        }
+        holder.thumbnailId = entry.id;
+        Bitmap cached = thumbnails.get(entry.id);
+        holder.queueImageView.setImageBitmap(cached);
+        if (cached != null || released) {
+            return;
+        }
+        File file = queue.getImageFile(entry);
+        String id = entry.id;
+        decoder.execute(() -> {
+            Bitmap bitmap = decodeThumbnail(file);
+            if (bitmap == null) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (released || thumbnails.get(id) != null) {
+                    // Another bind decoded it first, or the list is gone
+                    pool.put(bitmap);
+                    return;
+                }
+                thumbnails.put(id, bitmap);
+                if (id.equals(holder.thumbnailId)) {
+                    holder.queueImageView.setImageBitmap(bitmap);
+                }
+            });
+        });
+    }
+
+    private Bitmap decodeThumbnail(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = THUMBNAIL_SAMPLE_SIZE;
+        options.inMutable = true;
+        options.inBitmap = pool.getForDecode(THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        try {
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+            if (bitmap == null) {
+                pool.put(options.inBitmap);
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    static class ScanQueueViewHolder extends RecyclerView.ViewHolder {
+        ImageView queueImageView;
+        TextView queueLabelTextView;
+        TextView queueStatusTextView;
+        // Entry whose thumbnail this row shows or is waiting for
+        String thumbnailId;
+
+        ScanQueueViewHolder(@NonNull View itemView) {
+            super(itemView);
+            queueImageView = itemView.findViewById(R.id.queueImageView);
+            queueLabelTextView = itemView.findViewById(R.id.queueLabelTextView);
+            queueStatusTextView = itemView.findViewById(R.id.queueStatusTextView);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.maizedisease;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Drains the scan queue in batches while the device is idle or charging. Two one-shot jobs share
+// this service so whichever condition comes first starts the work; both are rescheduled on enqueue.
+public class ScanQueueJobService extends JobService {
+
+    private static final String TAG = "ScanQueueJobService";
+    static final int JOB_ID_IDLE = 1001;
+    static final int JOB_ID_CHARGING = 1002;
+
+    // Only one of the two jobs drains at a time
+    private static final AtomicBoolean draining = new AtomicBoolean();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private volatile boolean stopped;
+
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        ComponentName service = new ComponentName(context, ScanQueueJobService.class);
+        scheduler.schedule(new JobInfo.Builder(JOB_ID_IDLE, service)
+                .setRequiresDeviceIdle(true)
+                .setPersisted(true)
+                .build());
+        scheduler.schedule(new JobInfo.Builder(JOB_ID_CHARGING, service)
+                .setRequiresCharging(true)
+                .setPersisted(true)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        if (!draining.compareAndSet(false, true)) {
+            return false;
+        }
+        stopped = false;
+        executor.execute(() -> {
+            boolean reschedule = true;
+            try {
+                reschedule = drain();
+            } catch (IOException e) {
+                Log.e(TAG, "Error draining scan queue", e);
+            } finally {
+                draining.set(false);
+            }
+            if (!reschedule) {
+                // Queue is empty, so the other job has nothing left to do either
+                getSystemService(JobScheduler.class).cancel(
+                        params.getJobId() == JOB_ID_IDLE ? JOB_ID_CHARGING : JOB_ID_IDLE);
+            }
+            jobFinished(params, reschedule);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The current batch finishes and is saved; the rest waits for the next run
+        stopped = true;
+        return true;
+    }
+
+    @Override
+    public void onDestroy() {
+        executor.shutdown();
+        super.onDestroy();
+    }
+
+    // Queued images are all model sized, so after the first batch every decode reuses a pooled bitmap
+    private static Bitmap decode(File file, BitmapPool pool) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inMutable = true;
+        options.inBitmap = pool.getForDecode(InferenceEngine.INPUT_SIZE, InferenceEngine.INPUT_SIZE);
+        try {
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+            if (bitmap == null) {
+                pool.put(options.inBitmap);
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    // Returns true if work is left over
+    private boolean drain() throws IOException {
+        ScanQueue queue = ScanQueue.getInstance(this);
+        InferenceEngine engine = InferenceEngine.getInstance(this);
+        BitmapPool pool = BitmapPool.getInstance(this);
+        ImageQualityGate qualityGate = new ImageQualityGate(new ImageQualityGate.Config());
+        int processed = 0;
+        long start = System.currentTimeMillis();
+        while (!stopped) {
+            List<ScanQueue.Entry> batch = queue.nextPending(InferenceEngine.MAX_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                Log.i(TAG, "Scan queue drained: " + processed + " images in "
+                        + (System.currentTimeMillis() - start) + " ms");
+                return false;
+            }
+
+            List<ScanQueue.Entry> decoded = new ArrayList<>(batch.size());
+            List<Bitmap> bitmaps = new ArrayList<>(batch.size());
+            for (ScanQueue.Entry entry : batch) {
+                Bitmap bitmap = decode(queue.getImageFile(entry), pool);
+                if (bitmap == null) {
+                    queue.markFailed(entry.id, "Could not decode image");
+                    continue;
+                }
+                ImageQualityGate.Verdict verdict = qualityGate.check(bitmap);
+                if (!verdict.isUsable()) {
+                    queue.markFailed(entry.id, verdict.reason.message);
+                    pool.put(bitmap);
+                } else {
+                    decoded.add(entry);
+                    bitmaps.add(bitmap);
+                }
+            }
+            if (bitmaps.isEmpty()) {
+                continue;
+            }
+
+            try {
+                List<ClassificationResult> results = engine.classifyBatch(bitmaps);
+                for (int i = 0; i < results.size(); i++) {
+                    queue.markDone(decoded.get(i).id, results.get(i));
+                }
+                processed += results.size();
+            } catch (RuntimeException e) {
+                // Retrying the same batch would fail the same way on every run, so find the image
+                // that breaks it and mark only that one failed
+                Log.w(TAG, "Batch failed, classifying images one at a time", e);
+                processed += classifyEach(engine, queue, decoded, bitmaps);
+            } finally {
+                for (Bitmap bitmap : bitmaps) {
+                    pool.put(bitmap);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Returns how many were classified. A model that cannot load is still an IOException, which
+    // leaves the entries pending for the next run.
+    private static int classifyEach(InferenceEngine engine, ScanQueue queue, List<ScanQueue.Entry> entries,
+                                    List<Bitmap> bitmaps) throws IOException {
+        int classified = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            ClassificationResult result;
+            try {
+                result = engine.classify(bitmaps.get(i));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error classifying " + entries.get(i).id, e);
+                queue.markFailed(entries.get(i).id, "Could not classify image");
+                continue;
+            }
+            queue.markDone(entries.get(i).id, result);
+            classified++;
+        }
+        return classified;
+    }
+}
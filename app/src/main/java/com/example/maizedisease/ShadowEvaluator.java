@@ -0,0 +1,165 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs a candidate model on a sample of real predictions and records where it disagrees with the
+// model being served. The candidate has its own single-threaded interpreter on a lowest-priority
+// thread, and a sample is dropped rather than queued while the previous one is still running, so
+// the user never waits on it. Counts persist across restarts; disagreements are appended to
+// models/shadow/<version>.jsonl for offline review.
+public class ShadowEvaluator {
+
+    private static final String TAG = "ShadowEvaluator";
+    private static final String PREFS = "shadow_eval";
+    private static final long MAX_LOG_BYTES = 256 * 1024;
+    static final float DEFAULT_SAMPLE_RATE = 0.2f;
+
+    private final ModelRegistry.Model candidate;
+    private final InferenceEngine engine;
+    private final float sampleRate;
+    private final SharedPreferences prefs;
+    private final File log;
+    private final ExecutorService executor;
+    private final Random random = new Random();
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean closed;
+
+    public ShadowEvaluator(Context context, ModelRegistry.Model candidate, float sampleRate) {
+        this.candidate = candidate;
+        this.sampleRate = sampleRate;
+        this.engine = InferenceEngine.createFromFile(context, candidate);
+        this.engine.setInterpreterOptions(1, engine.isXnnpackEnabled());
+        this.prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.log = new File(new File(context.getFilesDir(), "models/shadow"), candidate.version + ".jsonl");
+        this.executor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+            runnable.run();
+        }, "shadow-eval"));
+    }
+
+    public ModelRegistry.Model getCandidate() {
+        return candidate;
+    }
+
+    // Called with the served model's input pixels and result; returns straight away
+    void offer(int[] pixels, ClassificationResult primary) {
+        if (closed || random.nextFloat() >= sampleRate) {
+            return;
+        }
+        if (!busy.compareAndSet(false, true)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        int[] copy = pixels.clone();
+        executor.execute(() -> {
+            try {
+                evaluate(copy, primary);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Shadow evaluation of " + candidate.version + " failed", e);
+            } finally {
+                busy.set(false);
+            }
+        });
+    }
+
+    public long getCompared() {
+        return prefs.getLong(key("compared"), 0);
+    }
+
+    public long getDisagreed() {
+        return prefs.getLong(key("disagreed"), 0);
+    }
+
+    public String getStats() {
+        long compared = getCompared();
+        long disagreed = getDisagreed();
+        return String.format(Locale.US, "%s: compared=%d disagreed=%d (%.1f%%) skipped=%d latency p50=%.1fms p95=%.1fms",
+                candidate.version, compared, disagreed, compared == 0 ? 0 : 100.0 * disagreed / compared,
+                skipped.get(), latency.getPercentileMicros(50) / 1000.0, latency.getPercentileMicros(95) / 1000.0);
+    }
+
+    public void reset() {
+        prefs.edit().remove(key("compared")).remove(key("disagreed")).apply();
+        log.delete();
+        latency.reset();
+        skipped.set(0);
+    }
+
+    void close() {
+        closed = true;
+        executor.execute(engine::close);
+        executor.shutdown();
+    }
+
+    private void evaluate(int[] pixels, ClassificationResult primary) throws IOException {
+        if (closed) {
+            return;
+        }
+        int size = InferenceEngine.INPUT_SIZE;
+        Bitmap bitmap = Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888);
+        long start = System.nanoTime();
+        ClassificationResult result = engine.classify(bitmap);
+        latency.recordNanos(System.nanoTime() - start);
+        bitmap.recycle();
+
+        boolean disagreed = !result.getTopLabel().equals(primary.getTopLabel());
+        synchronized (prefs) {
+            SharedPreferences.Editor editor = prefs.edit().putLong(key("compared"), getCompared() + 1);
+            if (disagreed) {
+                editor.putLong(key("disagreed"), getDisagreed() + 1);
+            }
+            editor.apply();
+        }
+        if (disagreed) {
+            record(primary, result);
+        }
+    }
+
+    private void record(ClassificationResult primary, ClassificationResult shadow) throws IOException {
+        File directory = log.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        if (log.length() >= MAX_LOG_BYTES) {
+            return;
+        }
+        JSONObject json = new JSONObject();
+        try {
+            json.put("time", System.currentTimeMillis());
+            json.put("primaryLabel", primary.getTopLabel());
+            json.put("primaryScore", (double) primary.getTopScore());
+            json.put("candidateLabel", shadow.getTopLabel());
+            json.put("candidateScore", (double) shadow.getTopScore());
+        } catch (JSONException e) {
+            throw new IOException("Could not write shadow record", e);
+        }
+        try (OutputStream out = new FileOutputStream(log, true)) {
+            out.write((json + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String key(String name) {
+        return candidate.version + "." + name;
+    }
+}
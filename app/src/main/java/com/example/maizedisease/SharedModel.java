@@ -0,0 +1,138 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Model bytes mapped once per process and shared read-only by every interpreter that uses them.
+// Mapped pages are backed by the APK or model file, so they cost no heap and the kernel can share
+// and evict them. Assets stored compressed cannot be mapped and are copied once instead.
+final class SharedModel {
+
+    private static final String TAG = "SharedModel";
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    private static final Map<String, SharedModel> loaded = new HashMap<>();
+
+    private final ByteBuffer buffer;
+    // Changes whenever the model file does, which invalidates cached predictions
+    final String id;
+    final boolean memoryMapped;
+    final long loadTimeMs;
+
+    private SharedModel(ByteBuffer buffer, boolean memoryMapped, long loadTimeMs) {
+        this.buffer = buffer;
+        this.memoryMapped = memoryMapped;
+        this.loadTimeMs = loadTimeMs;
+        this.id = checksum(buffer);
+    }
+
+    static synchronized SharedModel fromAsset(Context context, String assetName) throws IOException {
+        String key = "asset:" + assetName;
+        SharedModel model = loaded.get(key);
+        if (model == null) {
+            long start = SystemClock.elapsedRealtime();
+            ByteBuffer buffer;
+            boolean mapped;
+            try (AssetFileDescriptor descriptor = context.getAssets().openFd(assetName);
+                 FileInputStream in = new FileInputStream(descriptor.getFileDescriptor());
+                 FileChannel channel = in.getChannel()) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(),
+                        descriptor.getDeclaredLength());
+                mapped = true;
+            } catch (FileNotFoundException e) {
+                // openFd also fails like this for compressed assets, so tell the two apart by opening it
+                try (InputStream in = context.getAssets().open(assetName)) {
+                    Log.w(TAG, assetName + " is compressed in the APK, copying it instead of mapping");
+                    buffer = copy(in);
+                }
+                mapped = false;
+            }
+            model = new SharedModel(buffer, mapped, SystemClock.elapsedRealtime() - start);
+            loaded.put(key, model);
+            Log.i(TAG, "Loaded " + assetName + ": " + model.describe());
+        }
+        return model;
+    }
+
+    static synchronized SharedModel fromFile(File file) throws IOException {
+        String key = "file:" + file.getAbsolutePath();
+        SharedModel model = loaded.get(key);
+        if (model == null) {
+            long start = SystemClock.elapsedRealtime();
+            ByteBuffer buffer;
+            try (FileInputStream in = new FileInputStream(file);
+                 FileChannel channel = in.getChannel()) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            model = new SharedModel(buffer, true, SystemClock.elapsedRealtime() - start);
+            loaded.put(key, model);
+            Log.i(TAG, "Loaded " + file + ": " + model.describe());
+        }
+        return model;
+    }
+
+    // Forgets a removed model file; the mapping goes away once no interpreter holds a view of it
+    static synchronized void evict(File file) {
+        loaded.remove("file:" + file.getAbsolutePath());
+    }
+
+    // A view with its own position for each interpreter; the bytes themselves are shared
+    ByteBuffer buffer() {
+        return buffer.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    int size() {
+        return buffer.capacity();
+    }
+
+    String describe() {
+        return size() / 1024 + "KB " + (memoryMapped ? "mapped" : "copied") + " in " + loadTimeMs + "ms";
+    }
+
+    // Interpreters need a direct buffer, so the fallback copy goes off-heap rather than into a byte[]
+    private static ByteBuffer copy(InputStream in) throws IOException {
+        byte[] chunk = new byte[COPY_CHUNK];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(in.available(), COPY_CHUNK))
+                .order(ByteOrder.nativeOrder());
+        int read;
+        while ((read = in.read(chunk)) > 0) {
+            if (buffer.remaining() < read) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + read))
+                        .order(ByteOrder.nativeOrder());
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            buffer.put(chunk, 0, read);
+        }
+        buffer.flip();
+        if (buffer.limit() == buffer.capacity()) {
+            return buffer;
+        }
+        // The interpreter takes the model length from capacity(), so trim to the exact size
+        ByteBuffer exact = ByteBuffer.allocateDirect(buffer.limit()).order(ByteOrder.nativeOrder());
+        exact.put(buffer);
+        exact.rewind();
+        return exact;
+    }
+
+    private static String checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return Long.toHexString(crc.getValue()) + "-" + buffer.capacity();
+    }
+}
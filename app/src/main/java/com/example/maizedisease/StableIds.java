@@ -0,0 +1,25 @@
+package com.example.maizedisease;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Hands out RecyclerView stable ids for string keys. Keys are numbered in the order they are first
+// seen, so unlike hashCode() two different keys never share an id.
+final class StableIds {
+
+    private final Map<String, Long> ids = new HashMap<>();
+
+    long get(String key) {
+        if (key == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long id = ids.get(key);
+        if (id == null) {
+            id = (long) ids.size();
+            ids.put(key, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.maizedisease;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Turns a Bitmap of any size into the model's [1, 256, 256, 3] input, float or quantized.
+// The scaled bitmap, pixel array and input buffer are allocated once and reused, so a
+// preprocess() call does not allocate. Not thread-safe: InferenceEngine calls it under its lock.
+public class TensorPreprocessor {
+
+    static final int INPUT_SIZE = InferenceEngine.INPUT_SIZE;
+    static final int INPUT_CHANNELS = InferenceEngine.INPUT_CHANNELS;
+    static final int INPUT_PIXELS = INPUT_SIZE * INPUT_SIZE;
+    static final int INPUT_BYTES = INPUT_PIXELS * INPUT_CHANNELS * 4;
+
+    private final int[] pixels = new int[INPUT_PIXELS];
+    private ByteBuffer inputBuffer = ByteBuffer.allocateDirect(INPUT_BYTES).order(ByteOrder.nativeOrder());
+    private DataType inputType = DataType.FLOAT32;
+    private float scale = 1f;
+    private int zeroPoint;
+    private final Rect srcRect = new Rect();
+    private final Rect dstRect = new Rect(0, 0, INPUT_SIZE, INPUT_SIZE);
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final YuvConverter yuvConverter = new YuvConverter();
+    private Bitmap scaledBitmap;
+    private Canvas canvas;
+
+    public TensorPreprocessor() {
+        // SRC so transparent pixels overwrite the previous frame instead of blending with it,
+        // which is what createScaledBitmap gives on a fresh bitmap
+        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    }
+
+    // Matches the model's input tensor; quantized models take one byte per channel
+    public void setInputType(DataType type, float scale, int zeroPoint) {
+        this.inputType = type;
+        this.scale = scale == 0f ? 1f : scale;
+        this.zeroPoint = zeroPoint;
+        int bytes = getImageBytes();
+        if (inputBuffer.capacity() != bytes) {
+            inputBuffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    public int getImageBytes() {
+        return inputType == DataType.FLOAT32 ? INPUT_BYTES : INPUT_PIXELS * INPUT_CHANNELS;
+    }
+
+    public ByteBuffer preprocess(Bitmap bitmap) {
+        inputBuffer.clear();
+        preprocessInto(bitmap, inputBuffer);
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    // Scaled 256x256 ARGB pixels of the last preprocessed image; overwritten by the next call
+    int[] getPixels() {
+        return pixels;
+    }
+
+    // Writes one image at out's current position and advances it by getImageBytes()
+    public void preprocessInto(Bitmap bitmap, ByteBuffer out) {
+        if (scaledBitmap == null) {
+            scaledBitmap = Bitmap.createBitmap(INPUT_SIZE, INPUT_SIZE, Bitmap.Config.ARGB_8888);
+            canvas = new Canvas(scaledBitmap);
+        }
+        srcRect.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        canvas.drawBitmap(bitmap, srcRect, dstRect, paint);
+        scaledBitmap.getPixels(pixels, 0, INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
+        encodePixels(out);
+    }
+
+    // Camera frames go from YUV planes straight into the pixel scratch array, never through a Bitmap
+    public ByteBuffer preprocessFrame(CameraFrame frame) {
+        yuvConverter.toArgb(frame, pixels, INPUT_SIZE);
+        inputBuffer.clear();
+        encodePixels(inputBuffer);
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    private void encodePixels(ByteBuffer out) {
+        if (inputType == DataType.FLOAT32) {
+            convertPixels(pixels, INPUT_PIXELS, out);
+        } else {
+            quantizePixels(pixels, INPUT_PIXELS, out, scale, zeroPoint, inputType == DataType.INT8);
+        }
+    }
+
+    // Same channel order and value range as TensorImage(FLOAT32): R, G, B as 0..255 floats, alpha dropped
+    static void convertPixels(int[] pixels, int count, ByteBuffer out) {
+        for (int i = 0; i < count; i++) {
+            int pixel = pixels[i];
+            out.putFloat((pixel >> 16) & 0xFF);
+            out.putFloat((pixel >> 8) & 0xFF);
+            out.putFloat(pixel & 0xFF);
+        }
+    }
+
+    // q = round(value / scale) + zeroPoint, clamped to the uint8 or int8 range
+    static void quantizePixels(int[] pixels, int count, ByteBuffer out, float scale, int zeroPoint, boolean signed) {
+        int min = signed ? -128 : 0;
+        int max = signed ? 127 : 255;
+        float inverseScale = 1f / scale;
+        for (int i = 0; i < count; i++) {
+            int pixel = pixels[i];
+            out.put(quantize((pixel >> 16) & 0xFF, inverseScale, zeroPoint, min, max));
+            out.put(quantize((pixel >> 8) & 0xFF, inverseScale, zeroPoint, min, max));
+            out.put(quantize(pixel & 0xFF, inverseScale, zeroPoint, min, max));
+        }
+    }
+
+    private static byte quantize(int value, float inverseScale, int zeroPoint, int min, int max) {
+        int q = Math.round(value * inverseScale) + zeroPoint;
+        return (byte) Math.max(min, Math.min(max, q));
+    }
+}
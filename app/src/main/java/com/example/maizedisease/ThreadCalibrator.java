@@ -0,0 +1,95 @@
+package com.example.maizedisease;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Locale;
+
+// Picks the interpreter thread count for this device by timing a few inferences at 1, 2, 4 and
+// all-core thread counts. The winner is stored per build fingerprint so an OS update re-runs it.
+final class ThreadCalibrator {
+
+    private static final String TAG = "ThreadCalibrator";
+    private static final String PREFS_NAME = "inference_tuning";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_NUM_THREADS = "num_threads";
+    private static final String KEY_USE_XNNPACK = "use_xnnpack";
+    private static final int TIMED_RUNS = 5;
+    private static final int DEFAULT_NUM_THREADS = 2;
+
+    static class Settings {
+        final int numThreads;
+        final boolean useXnnpack;
+
+        Settings(int numThreads, boolean useXnnpack) {
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+        }
+    }
+
+    private ThreadCalibrator() {
+    }
+
+    static Settings loadSettings(Context context) {
+        SharedPreferences prefs = prefs(context);
+        int fallback = Math.min(DEFAULT_NUM_THREADS, Runtime.getRuntime().availableProcessors());
+        return new Settings(prefs.getInt(KEY_NUM_THREADS, fallback), prefs.getBoolean(KEY_USE_XNNPACK, true));
+    }
+
+    static boolean isCalibrated(Context context) {
+        return Build.FINGERPRINT.equals(prefs(context).getString(KEY_FINGERPRINT, null));
+    }
+
+    static void calibrate(Context context, InferenceEngine engine) {
+        boolean useXnnpack = engine.isXnnpackEnabled();
+        int bestThreads = engine.getNumThreads();
+        long bestNanos = Long.MAX_VALUE;
+        StringBuilder timings = new StringBuilder();
+        try {
+            for (int threads : candidateThreadCounts(Runtime.getRuntime().availableProcessors())) {
+                engine.setInterpreterOptions(threads, useXnnpack);
+                // Nanoseconds: on a fast device whole milliseconds would tie and always pick 1 thread
+                long nanos = engine.measureLatencyNanos(TIMED_RUNS);
+                timings.append(String.format(Locale.US, "%dt=%.2fms ", threads, nanos / 1e6));
+                if (nanos < bestNanos) {
+                    bestNanos = nanos;
+                    bestThreads = threads;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Calibration failed, keeping " + bestThreads + " threads", e);
+            return;
+        } finally {
+            engine.setInterpreterOptions(bestThreads, useXnnpack);
+        }
+
+        Log.i(TAG, "Calibrated " + timings + "-> " + bestThreads + " threads");
+        prefs(context).edit()
+                .putString(KEY_FINGERPRINT, Build.FINGERPRINT)
+                .putInt(KEY_NUM_THREADS, bestThreads)
+                .putBoolean(KEY_USE_XNNPACK, useXnnpack)
+                .apply();
+    }
+
+    // 1, 2, 4 and the core count, without duplicates or counts above the core count
+    static int[] candidateThreadCounts(int cores) {
+        int[] candidates = new int[4];
+        int count = 0;
+        for (int threads : new int[]{1, 2, 4, cores}) {
+            if (threads > cores || (count > 0 && candidates[count - 1] >= threads)) {
+                continue;
+            }
+            candidates[count++] = threads;
+        }
+        int[] result = new int[count];
+        System.arraycopy(candidates, 0, result, 0, count);
+        return result;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.maizedisease;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Classifies a high-resolution image as overlapping 256x256 crops, so small lesions are not lost
+// when the whole photo is shrunk to the model input. Tiles go through the engine in batches,
+// centre first, and tiling stops once the latency budget is spent.
+public class TiledClassifier {
+
+    private static final String TAG = "TiledClassifier";
+
+    public enum Aggregation {
+        // Average of the per-tile probabilities
+        MEAN,
+        // Share of tiles whose top class is each label
+        VOTE
+    }
+
+    public static class Config {
+        public int tileSize = InferenceEngine.INPUT_SIZE;
+        public float overlap = 0.25f;
+        public Aggregation aggregation = Aggregation.MEAN;
+        public long latencyBudgetMs = 3000;
+        // Long side of the decode the tiles are cut from
+        public int detailMaxSide = 1536;
+    }
+
+    private final InferenceEngine engine;
+    private final Config config;
+    private final BitmapPool pool;
+
+    public TiledClassifier(InferenceEngine engine, Config config, BitmapPool pool) {
+        this.engine = engine;
+        this.config = config;
+        this.pool = pool;
+    }
+
+    public ClassificationResult classify(Bitmap source) throws IOException {
+        long deadline = SystemClock.elapsedRealtime() + config.latencyBudgetMs;
+        List<int[]> tiles = planTiles(source.getWidth(), source.getHeight(), config.tileSize, config.overlap);
+
+        // The whole image always counts, so a spent budget still gives an answer
+        ClassificationResult whole = engine.classify(source);
+        List<float[]> scores = new ArrayList<>(tiles.size() + 1);
+        scores.add(scoresOf(whole));
+
+        int processed = 0;
+        List<Bitmap> batch = new ArrayList<>(InferenceEngine.MAX_BATCH_SIZE);
+        while (processed < tiles.size() && SystemClock.elapsedRealtime() < deadline) {
+            int end = Math.min(tiles.size(), processed + InferenceEngine.MAX_BATCH_SIZE);
+            for (int i = processed; i < end; i++) {
+                int[] tile = tiles.get(i);
+                batch.add(crop(source, tile[0], tile[1]));
+            }
+            for (ClassificationResult result : engine.classifyBatch(batch)) {
+                scores.add(scoresOf(result));
+            }
+            for (Bitmap crop : batch) {
+                pool.put(crop);
+            }
+            batch.clear();
+            processed = end;
+        }
+        Log.d(TAG, "Classified " + processed + "/" + tiles.size() + " tiles of " + source.getWidth() + "x"
+                + source.getHeight());
+
+        return ClassificationResult.fromScores(combine(scores, config.aggregation), whole.getLabels(),
+                ClassificationResult.DEFAULT_TOP_K);
+    }
+
+    // Tiles reuse the same pooled bitmaps batch after batch
+    private Bitmap crop(Bitmap source, int x, int y) {
+        Bitmap tile = pool.get(config.tileSize, config.tileSize);
+        new Canvas(tile).drawBitmap(source, new Rect(x, y, x + config.tileSize, y + config.tileSize),
+                new Rect(0, 0, config.tileSize, config.tileSize), null);
+        return tile;
+    }
+
+    // Top-left corners of tileSize crops covering the image with at least the given overlap,
+    // ordered by distance from the centre
+    static List<int[]> planTiles(int width, int height, int tileSize, float overlap) {
+        if (width < tileSize || height < tileSize) {
+            return Collections.emptyList();
+        }
+        int[] xs = axisOffsets(width, tileSize, overlap);
+        int[] ys = axisOffsets(height, tileSize, overlap);
+        List<int[]> tiles = new ArrayList<>(xs.length * ys.length);
+        for (int y : ys) {
+            for (int x : xs) {
+                tiles.add(new int[]{x, y});
+            }
+        }
+        int centerX = (width - tileSize) / 2;
+        int centerY = (height - tileSize) / 2;
+        Collections.sort(tiles, (a, b) -> Long.compare(distanceSquared(a, centerX, centerY),
+                distanceSquared(b, centerX, centerY)));
+        return tiles;
+    }
+
+    static float[] combine(List<float[]> scores, Aggregation aggregation) {
+        float[] combined = new float[scores.get(0).length];
+        for (float[] tile : scores) {
+            if (aggregation == Aggregation.MEAN) {
+                for (int i = 0; i < combined.length; i++) {
+                    combined[i] += tile[i];
+                }
+            } else {
+                combined[argmax(tile)] += 1f;
+            }
+        }
+        for (int i = 0; i < combined.length; i++) {
+            combined[i] /= scores.size();
+        }
+        return combined;
+    }
+
+    // Evenly spaced offsets from 0 to length - tileSize with steps of at most tileSize * (1 - overlap)
+    private static int[] axisOffsets(int length, int tileSize, float overlap) {
+        int span = length - tileSize;
+        int maxStep = Math.max(1, Math.round(tileSize * (1f - overlap)));
+        int steps = (span + maxStep - 1) / maxStep;
+        int[] offsets = new int[steps + 1];
+        for (int i = 0; i <= steps; i++) {
+            offsets[i] = steps == 0 ? 0 : Math.round((float) span * i / steps);
+        }
+        return offsets;
+    }
+
+    private static long distanceSquared(int[] tile, int centerX, int centerY) {
+        long dx = tile[0] - centerX;
+        long dy = tile[1] - centerY;
+        return dx * dx + dy * dy;
+    }
+
+    private static int argmax(float[] scores) {
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static float[] scoresOf(ClassificationResult result) {
+        float[] scores = new float[result.getClassCount()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = result.getScore(i);
+        }
+        return scores;
+    }
+}
@@ -8,29 +8,36 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
+
+// Shows snapshots of the user directory, diffed against the previous snapshot on a background thread
+public class UserAdapter extends ListAdapter<UserModel, UserAdapter.MyViewHolder> {
+
+    static final DiffUtil.ItemCallback<UserModel> DIFF = new DiffUtil.ItemCallback<UserModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull UserModel oldItem, @NonNull UserModel newItem) {
+            return Objects.equals(oldItem.getUserId(), newItem.getUserId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull UserModel oldItem, @NonNull UserModel newItem) {
+            // Only what the row shows
+            return Objects.equals(oldItem.getUsername(), newItem.getUsername())
+                    && Objects.equals(oldItem.getEmail(), newItem.getEmail());
+        }
+    };
 
-public class UserAdapter extends RecyclerView.Adapter<UserAdapter.MyViewHolder> {
     private Context context;
-    private List<UserModel> userModelList;
+    private final StableIds stableIds = new StableIds();
 
     public UserAdapter(Context context) {
+        super(DIFF);
         this.context = context;
-        userModelList = new ArrayList<>();
-    }
-
-    public void addUser(UserModel userModel) {
-        userModelList.add(userModel);
-        notifyItemInserted(userModelList.size() - 1);
-    }
-
-    public void clearUsers() {
-        int size = userModelList.size();
-        userModelList.clear();
-        notifyItemRangeRemoved(0, size);
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -42,13 +49,13 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.MyViewHolder>
 
     @Override
     public void onBindViewHolder(@NonNull MyViewHolder holder, int position) {
-        UserModel userModel = userModelList.get(position);
+        UserModel userModel = getItem(position);
         holder.bind(userModel);
     }
 
     @Override
-    public int getItemCount() {
-        return userModelList.size();
+    public long getItemId(int position) {
+        return stableIds.get(getItem(position).getUserId());
     }
 
     public class MyViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
@@ -70,7 +77,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.MyViewHolder>
         public void onClick(View v) {
             int position = getAdapterPosition();
             if (position != RecyclerView.NO_POSITION) {
-                UserModel userModel = userModelList.get(position);
+                UserModel userModel = getItem(position);
                 Intent intent = new Intent(context, ChatActivity.class);
                 intent.putExtra("userId", userModel.getUserId());
                 context.startActivity(intent);
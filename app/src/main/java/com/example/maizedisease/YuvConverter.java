@@ -0,0 +1,89 @@
+package com.example.maizedisease;
+
+// Samples a whole YUV_420_888 frame, turned upright by its rotationDegrees, down to size x size ARGB
+// pixels in one pass. Like the gallery path's scale to model input, the frame is squashed to a square
+// rather than cropped, so live and gallery predictions see the same framing.
+// Nearest-neighbour is enough here: camera frames are only a few times the model resolution,
+// and the index tables are rebuilt only when the frame size or rotation changes.
+class YuvConverter {
+
+    // Source coordinate for each output column and row. For 90 and 270 degrees the frame is
+    // transposed: an output row walks down a source column.
+    private int[] columns = new int[0];
+    private int[] rows = new int[0];
+    private boolean transposed;
+    private int tableWidth = -1;
+    private int tableHeight = -1;
+    private int tableRotation = -1;
+
+    void toArgb(CameraFrame frame, int[] out, int size) {
+        buildTables(frame.width, frame.height, frame.rotationDegrees, size);
+        for (int oy = 0; oy < size; oy++) {
+            int row = rows[oy];
+            for (int ox = 0; ox < size; ox++) {
+                int column = columns[ox];
+                out[oy * size + ox] = transposed ? sample(frame, row, column) : sample(frame, column, row);
+            }
+        }
+    }
+
+    private static int sample(CameraFrame frame, int sx, int sy) {
+        int uvIndex = (sy >> 1) * frame.uvRowStride + (sx >> 1) * frame.uvPixelStride;
+        int y = frame.yPlane.get(sy * frame.yRowStride + sx) & 0xFF;
+        int u = (frame.uPlane.get(uvIndex) & 0xFF) - 128;
+        int v = (frame.vPlane.get(uvIndex) & 0xFF) - 128;
+        return yuvToArgb(y, u, v);
+    }
+
+    // Full-range BT.601 in 8.8 fixed point, as the camera produces for JPEG-style output
+    static int yuvToArgb(int y, int u, int v) {
+        int r = y + ((359 * v) >> 8);
+        int g = y - ((88 * u + 183 * v) >> 8);
+        int b = y + ((454 * u) >> 8);
+        return 0xFF000000 | (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    private void buildTables(int width, int height, int rotation, int size) {
+        if (width == tableWidth && height == tableHeight && rotation == tableRotation && columns.length == size) {
+            return;
+        }
+        transposed = rotation == 90 || rotation == 270;
+        // Upright width and height
+        int uprightWidth = transposed ? height : width;
+        int uprightHeight = transposed ? width : height;
+        columns = new int[size];
+        rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            // Sample at pixel centres so the scale is symmetric
+            int x = (int) (((long) (2 * i + 1) * uprightWidth) / (2L * size));
+            int y = (int) (((long) (2 * i + 1) * uprightHeight) / (2L * size));
+            switch (rotation) {
+                case 90:
+                    // Upright (x, y) is source (y, height - 1 - x)
+                    columns[i] = height - 1 - x;
+                    rows[i] = y;
+                    break;
+                case 180:
+                    columns[i] = width - 1 - x;
+                    rows[i] = height - 1 - y;
+                    break;
+                case 270:
+                    // Upright (x, y) is source (width - 1 - y, x)
+                    columns[i] = x;
+                    rows[i] = width - 1 - y;
+                    break;
+                default:
+                    columns[i] = x;
+                    rows[i] = y;
+                    break;
+            }
+        }
+        tableWidth = width;
+        tableHeight = height;
+        tableRotation = rotation;
+    }
+}
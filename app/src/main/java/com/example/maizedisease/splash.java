@@ -5,16 +5,25 @@ import androidx.appcompat.app.AppCompatActivity;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.WindowManager;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.ImageView;
 
+// Stays up until the logo animation has played and the model is loaded and warmed up,
+// whichever takes longer
 public class splash extends AppCompatActivity {
-    private static  int SPLASH_SCREEN=5000;
+    private static final String TAG = "splash";
+    // Never hold the user here if startup work is stuck
+    private static final long MAX_SPLASH_SCREEN = 10000;
     ImageView logo,slogan,hp;
     Animation topanim,leftanim,rightanim;
 
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean animationDone, startupDone, proceeded;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -29,14 +38,41 @@ public class splash extends AppCompatActivity {
         logo.setAnimation(topanim);
         slogan.setAnimation(rightanim);
         hp.setAnimation(leftanim);
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                Intent i=new Intent(splash.this,MainActivity2.class);
-                startActivity(i);
-                finish();
-            }
-        },SPLASH_SCREEN);
 
+        long animationTime = Math.max(topanim.computeDurationHint(),
+                Math.max(leftanim.computeDurationHint(), rightanim.computeDurationHint()));
+        handler.postDelayed(() -> {
+            animationDone = true;
+            proceedIfReady();
+        }, animationTime);
+        handler.postDelayed(this::proceed, MAX_SPLASH_SCREEN);
+        ((MaizeApplication) getApplication()).runAfterStartup(() -> handler.post(() -> {
+            startupDone = true;
+            proceedIfReady();
+        }));
+    }
+
+    @Override
+    protected void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+
+    private void proceedIfReady() {
+        if (animationDone && startupDone) {
+            proceed();
+        }
+    }
+
+    private void proceed() {
+        if (proceeded || isFinishing()) {
+            return;
+        }
+        proceeded = true;
+        Log.i(TAG, "Splash done " + MaizeApplication.sinceProcessStartMs() + " ms after process start"
+                + (startupDone ? "" : ", before startup work finished"));
+        Intent i=new Intent(splash.this,MainActivity2.class);
+        startActivity(i);
+        finish();
     }
-}
\ No newline at end of file
+}
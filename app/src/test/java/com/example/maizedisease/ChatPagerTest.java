@@ -0,0 +1,319 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class ChatPagerTest {
+
+    private static final int PAGE = 20;
+    private static final int MAX = 60;
+
+    @Test
+    public void open_loadsOnlyTheNewestPage_atAnyRoomSize() {
+        for (int size : new int[]{100, 1000, 10000}) {
+            FakeRoom room = new FakeRoom(size);
+            ChatTimeline timeline = new ChatTimeline();
+            ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+
+            room.attach(pager);
+
+            assertEquals(PAGE, room.delivered);
+            assertEquals(0, room.queries);
+            assertEquals(PAGE, timeline.size());
+            assertEquals(room.messages.lastKey(), timeline.getKey(PAGE - 1));
+            assertContiguous(room, timeline);
+        }
+    }
+
+    @Test
+    public void scrollingUp_pagesInOlderMessagesWithinTheCap() {
+        FakeRoom room = new FakeRoom(1000);
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        room.attach(pager);
+
+        scrollToTop(pager, timeline);
+
+        assertFalse(pager.hasOlder());
+        assertTrue(pager.isMissingNewest());
+        assertEquals(MAX, timeline.size());
+        assertEquals(room.messages.firstKey(), timeline.getKey(0));
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void scrollingBackDown_refetchesTheNewestMessages() {
+        FakeRoom room = new FakeRoom(1000);
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        room.attach(pager);
+        scrollToTop(pager, timeline);
+
+        scrollToBottom(pager, timeline);
+
+        assertFalse(pager.isMissingNewest());
+        assertTrue(pager.hasOlder());
+        assertTrue(timeline.size() <= MAX);
+        assertEquals(room.messages.lastKey(), timeline.getKey(timeline.size() - 1));
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void liveMessage_whileNewestMissing_arrivesWithTheNewerPages() {
+        FakeRoom room = new FakeRoom(1000);
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        room.attach(pager);
+        scrollToTop(pager, timeline);
+
+        String key = room.push("while away");
+
+        assertEquals(-1, timeline.indexOf(key));
+        scrollToBottom(pager, timeline);
+        assertEquals(key, timeline.getKey(timeline.size() - 1));
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void liveMessage_atTheBottomIsShownAndTrimsTheTop() {
+        FakeRoom room = new FakeRoom(1000);
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        room.attach(pager);
+        for (int i = 0; i < MAX; i++) {
+            pager.onVisibleRangeChanged(timeline.size() - 5, timeline.size() - 1);
+            room.push("new " + i);
+        }
+
+        assertEquals(MAX, timeline.size());
+        assertFalse(pager.isMissingNewest());
+        assertEquals(room.messages.lastKey(), timeline.getKey(MAX - 1));
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void olderPage_isDroppedIfTheWindowMovedMeanwhile() {
+        FakeRoom room = new FakeRoom(1000);
+        room.deferred = true;
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        room.attach(pager);
+        pager.onVisibleRangeChanged(0, 5);
+        assertEquals(1, room.pending.size());
+
+        // The user jumps back to the bottom and enough arrives to trim the top
+        for (int i = 0; i < MAX; i++) {
+            pager.onVisibleRangeChanged(timeline.size() - 5, timeline.size() - 1);
+            room.push("new " + i);
+        }
+        room.runPending();
+
+        assertEquals(MAX, timeline.size());
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void cachedPage_thatJoinsTheLivePageIsKept() {
+        FakeRoom room = new FakeRoom(1000);
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        pager.onCachedPage(room.newest(PAGE));
+        room.push("since last visit");
+
+        room.attach(pager);
+
+        assertEquals(PAGE + 1, timeline.size());
+        assertEquals(room.messages.lastKey(), timeline.getKey(PAGE));
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void cachedPage_leftBehindByTheLivePageIsDropped() {
+        FakeRoom room = new FakeRoom(1000);
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        pager.onCachedPage(room.newest(PAGE));
+        for (int i = 0; i < PAGE * 2; i++) {
+            room.push("since last visit " + i);
+        }
+
+        room.attach(pager);
+
+        assertEquals(PAGE, timeline.size());
+        assertTrue(pager.hasOlder());
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void migratedRoom_opensOnPushKeysAndPagesBackToLegacy() {
+        FakeRoom room = new FakeRoom(0);
+        for (int i = 0; i < 100; i++) {
+            room.putLegacy(String.format(Locale.US, "%08x-0000-4000-8000-000000000000", i * 7919));
+        }
+        for (int i = 0; i < 30; i++) {
+            room.push("after migration " + i);
+        }
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        room.attach(pager);
+        String sent = room.push("just sent");
+
+        assertEquals(sent, timeline.getKey(timeline.size() - 1));
+        scrollToTop(pager, timeline);
+        assertEquals(room.messages.firstKey(), timeline.getKey(0));
+        assertTrue(timeline.getKey(0).startsWith(ChatTimeline.LEGACY_PREFIX));
+        assertContiguous(room, timeline);
+    }
+
+    @Test
+    public void olderMessagesAdded_afterReachingTheStart_arePagedIn() {
+        FakeRoom room = new FakeRoom(30);
+        ChatTimeline timeline = new ChatTimeline();
+        ChatPager pager = new ChatPager(timeline, room, PAGE, MAX);
+        room.attach(pager);
+        scrollToTop(pager, timeline);
+        assertFalse(pager.hasOlder());
+
+        for (int i = 0; i < 10; i++) {
+            room.putLegacy(String.format(Locale.US, "%08x-0000-4000-8000-000000000000", i));
+        }
+        pager.onOlderMessagesAdded();
+        scrollToTop(pager, timeline);
+
+        assertEquals(40, timeline.size());
+        assertEquals(room.messages.firstKey(), timeline.getKey(0));
+        assertContiguous(room, timeline);
+    }
+
+    private static void scrollToTop(ChatPager pager, ChatTimeline timeline) {
+        for (int i = 0; i < 1000 && pager.hasOlder(); i++) {
+            pager.onVisibleRangeChanged(0, 5);
+            assertTrue(timeline.size() <= MAX);
+        }
+    }
+
+    private static void scrollToBottom(ChatPager pager, ChatTimeline timeline) {
+        for (int i = 0; i < 1000 && pager.isMissingNewest(); i++) {
+            pager.onVisibleRangeChanged(timeline.size() - 5, timeline.size() - 1);
+            assertTrue(timeline.size() <= MAX);
+        }
+    }
+
+    // The window must be an unbroken run of the room, with no message skipped
+    private static void assertContiguous(FakeRoom room, ChatTimeline timeline) {
+        List<String> expected = new ArrayList<>(room.messages.subMap(timeline.getKey(0), true,
+                timeline.getKey(timeline.size() - 1), true).keySet());
+        List<String> actual = new ArrayList<>();
+        for (int i = 0; i < timeline.size(); i++) {
+            actual.add(timeline.getKey(i));
+        }
+        assertEquals(expected, actual);
+    }
+
+    // Stands in for a Firebase room: a live listener on the newest page, and key-range page queries
+    private static class FakeRoom implements ChatPager.PageSource {
+        final NavigableMap<String, MessageModel> messages = new TreeMap<>();
+        final List<Runnable> pending = new ArrayList<>();
+        boolean deferred;
+        int delivered;
+        int queries;
+        private ChatPager live;
+        private long nextKey = 1_000_000;
+
+        FakeRoom(int size) {
+            for (int i = 0; i < size; i++) {
+                push("message " + i);
+            }
+        }
+
+        String push(String text) {
+            String key = String.format(Locale.US, "-K%012d", nextKey++);
+            MessageModel model = new MessageModel(key, "sender", text);
+            messages.put(key, model);
+            if (live != null) {
+                delivered++;
+                live.onLiveMessage(key, model, false);
+            }
+            return key;
+        }
+
+        // A message moved over from a legacy room, under its migrated key
+        void putLegacy(String uuid) {
+            String key = ChatTimeline.LEGACY_PREFIX + uuid;
+            messages.put(key, new MessageModel(uuid, "sender", "legacy " + uuid));
+        }
+
+        Map<String, MessageModel> newest(int count) {
+            Map<String, MessageModel> page = new TreeMap<>();
+            for (Map.Entry<String, MessageModel> entry : messages.descendingMap().entrySet()) {
+                if (page.size() == count) {
+                    break;
+                }
+                page.put(entry.getKey(), entry.getValue());
+            }
+            return page;
+        }
+
+        void attach(ChatPager pager) {
+            live = pager;
+            NavigableMap<String, MessageModel> newest = messages.descendingMap();
+            List<String> keys = new ArrayList<>(newest.keySet()).subList(0, Math.min(PAGE, messages.size()));
+            for (int i = keys.size() - 1; i >= 0; i--) {
+                delivered++;
+                pager.onLiveMessage(keys.get(i), messages.get(keys.get(i)), i == keys.size() - 1);
+            }
+        }
+
+        @Override
+        public void loadOlder(String beforeKey, int limit, ChatPager.PageCallback callback) {
+            queries++;
+            NavigableMap<String, MessageModel> older = messages.headMap(beforeKey, false).descendingMap();
+            Map<String, MessageModel> page = new TreeMap<>();
+            for (Map.Entry<String, MessageModel> entry : older.entrySet()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.put(entry.getKey(), entry.getValue());
+            }
+            answer(callback, page);
+        }
+
+        @Override
+        public void loadNewer(String afterKey, int limit, ChatPager.PageCallback callback) {
+            queries++;
+            Map<String, MessageModel> page = new LinkedHashMap<>();
+            for (Map.Entry<String, MessageModel> entry : messages.tailMap(afterKey, false).entrySet()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.put(entry.getKey(), entry.getValue());
+            }
+            answer(callback, page);
+        }
+
+        void runPending() {
+            List<Runnable> runs = new ArrayList<>(pending);
+            pending.clear();
+            for (Runnable run : runs) {
+                run.run();
+            }
+        }
+
+        private void answer(ChatPager.PageCallback callback, Map<String, MessageModel> page) {
+            if (deferred) {
+                pending.add(() -> callback.onPage(page));
+            } else {
+                callback.onPage(page);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ChatRoomsTest {
+
+    private static final String FARMER = "farmerUid";
+    private static final String OFFICER = "OfficerUid";
+    private static final String ROOM = "OfficerUid_farmerUid";
+    private static final Object NOW = 1234L;
+    private static final String UUID_A = "0f8e7a52-3c1b-4d2e-9a8b-1c2d3e4f5a6b";
+    private static final String UUID_B = "7b1c2d3e-4f5a-4b6c-8d7e-9f0a1b2c3d4e";
+    private static final String UUID_C = "c4d5e6f7-0a1b-4c2d-8e9f-a0b1c2d3e4f5";
+
+    @Test
+    public void roomId_isTheSameFromEitherSide() {
+        assertEquals(ChatRooms.roomId(FARMER, OFFICER), ChatRooms.roomId(OFFICER, FARMER));
+        assertEquals(ROOM, ChatRooms.roomId(FARMER, OFFICER));
+    }
+
+    @Test
+    public void sendUpdate_storesMessageOnceAndIndexesBothUsers() {
+        MessageModel message = new MessageModel("-K1", FARMER, "Is this rust?");
+
+        Map<String, Object> update = ChatRooms.sendUpdate("-K1", message, OFFICER, NOW);
+
+        assertSame(message, update.get("chats/" + ROOM + "/-K1"));
+        assertEquals(1, countUnder(update, "chats/"));
+        for (String index : new String[]{"conversations/farmerUid/OfficerUid", "conversations/OfficerUid/farmerUid"}) {
+            assertEquals(ROOM, update.get(index + "/roomId"));
+            assertEquals("-K1", update.get(index + "/lastMessageKey"));
+            assertEquals("Is this rust?", update.get(index + "/lastMessage"));
+            assertEquals(FARMER, update.get(index + "/lastSenderId"));
+            assertEquals(NOW, update.get(index + "/updatedAt"));
+        }
+    }
+
+    @Test
+    public void migrationUpdate_rekeysUuidMessagesAheadOfPushKeys() {
+        Map<String, MessageModel> legacy = new HashMap<>();
+        legacy.put(UUID_C, new MessageModel(UUID_C, FARMER, "first"));
+        legacy.put(UUID_A, new MessageModel(UUID_A, OFFICER, "second"));
+        legacy.put(UUID_B, new MessageModel(UUID_B, FARMER, "third"));
+
+        Map<String, Object> update = ChatRooms.migrationUpdate(FARMER, OFFICER, legacy, false, NOW);
+
+        List<String> keys = new ArrayList<>();
+        for (String path : update.keySet()) {
+            if (path.startsWith("chats/" + ROOM + "/")) {
+                keys.add(path.substring(("chats/" + ROOM + "/").length()));
+            }
+        }
+        assertEquals(3, keys.size());
+        for (String key : keys) {
+            assertTrue(key.startsWith(ChatTimeline.LEGACY_PREFIX));
+            // Any push key written later sorts after every migrated one
+            assertTrue(key.compareTo("-NxA0000000000000000") < 0);
+        }
+        MessageModel moved = (MessageModel) update.get("chats/" + ROOM + "/" + ChatTimeline.orderKey(UUID_A));
+        assertEquals(UUID_A, moved.getMsgid());
+        assertEquals("second", moved.getMessage());
+        // The newest legacy message is the one the old app showed last: the largest UUID
+        assertEquals(ChatTimeline.orderKey(UUID_C), update.get("conversations/farmerUid/OfficerUid/lastMessageKey"));
+    }
+
+    @Test
+    public void migrationUpdate_mergesDuplicatesAndDeletesLegacyRooms() {
+        Map<String, MessageModel> legacy = new HashMap<>();
+        legacy.put(UUID_A, new MessageModel(UUID_A, FARMER, "first"));
+        legacy.put(UUID_B, new MessageModel(UUID_B, OFFICER, "second"));
+
+        Map<String, Object> update = ChatRooms.migrationUpdate(FARMER, OFFICER, legacy, false, NOW);
+
+        assertEquals(2, countUnder(update, "chats/" + ROOM + "/"));
+        for (String legacyRoom : new String[]{"chats/farmerUidOfficerUid/", "chats/OfficerUidfarmerUid/"}) {
+            for (String key : new String[]{UUID_A, UUID_B}) {
+                assertTrue(update.containsKey(legacyRoom + key));
+                assertNull(update.get(legacyRoom + key));
+            }
+        }
+        assertEquals(ROOM, update.get("conversations/farmerUid/OfficerUid/roomId"));
+        assertEquals(ROOM, update.get("conversations/OfficerUid/farmerUid/roomId"));
+    }
+
+    @Test
+    public void migrationUpdate_keepsMessagesWrittenAfterTheRead() {
+        Map<String, MessageModel> legacy = new HashMap<>();
+        legacy.put(UUID_A, new MessageModel(UUID_A, FARMER, "read"));
+
+        Map<String, Object> update = ChatRooms.migrationUpdate(FARMER, OFFICER, legacy, false, NOW);
+
+        // An older client wrote UUID_B to both legacy rooms after they were read
+        for (String late : new String[]{"chats/farmerUidOfficerUid/" + UUID_B, "chats/OfficerUidfarmerUid/" + UUID_B}) {
+            for (String path : update.keySet()) {
+                assertFalse(path + " would delete " + late, late.equals(path) || late.startsWith(path + "/"));
+            }
+        }
+    }
+
+    @Test
+    public void migrationUpdate_keepsANewerLastMessage() {
+        Map<String, MessageModel> legacy = new HashMap<>();
+        legacy.put(UUID_A, new MessageModel(UUID_A, FARMER, "old"));
+
+        Map<String, Object> update = ChatRooms.migrationUpdate(FARMER, OFFICER, legacy, true, NOW);
+
+        assertEquals(1, countUnder(update, "chats/" + ROOM + "/"));
+        assertFalse(update.containsKey("conversations/farmerUid/OfficerUid/lastMessageKey"));
+        assertFalse(update.containsKey("conversations/OfficerUid/farmerUid/lastMessage"));
+    }
+
+    @Test
+    public void migrationUpdate_withNoLegacyMessagesTouchesNoRoom() {
+        Map<String, Object> update = ChatRooms.migrationUpdate(FARMER, OFFICER, new HashMap<>(), false, NOW);
+
+        assertEquals(0, countUnder(update, "chats/"));
+        assertFalse(update.containsKey("conversations/farmerUid/OfficerUid/lastMessageKey"));
+    }
+
+    private static int countUnder(Map<String, Object> update, String prefix) {
+        int count = 0;
+        for (String path : update.keySet()) {
+            if (path.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class ChatTimelineTest {
+
+    @Test
+    public void newMessage_touchesOnlyItsOwnPosition_atAnyRoomSize() {
+        for (int size : new int[]{100, 1000, 10000}) {
+            FakeRoom room = new FakeRoom();
+            for (int i = 0; i < size; i++) {
+                room.push("message " + i);
+            }
+            ChatTimeline timeline = new ChatTimeline();
+            RecordingListener listener = new RecordingListener();
+            timeline.setListener(listener);
+            room.attach(timeline);
+            listener.events.clear();
+            int delivered = room.delivered;
+
+            room.push("new message");
+
+            assertEquals(1, room.delivered - delivered);
+            assertEquals(1, listener.events.size());
+            assertEquals("inserted " + size, listener.events.get(0));
+            assertEquals(size + 1, timeline.size());
+            assertEquals("new message", timeline.get(size).getMessage());
+        }
+    }
+
+    @Test
+    public void attach_deliversHistoryInKeyOrder() {
+        FakeRoom room = new FakeRoom();
+        room.push("first");
+        room.push("second");
+        room.push("third");
+        ChatTimeline timeline = new ChatTimeline();
+
+        room.attach(timeline);
+
+        assertEquals(3, timeline.size());
+        assertEquals("first", timeline.get(0).getMessage());
+        assertEquals("third", timeline.get(2).getMessage());
+    }
+
+    @Test
+    public void add_placesOlderKeyInOrder() {
+        ChatTimeline timeline = new ChatTimeline();
+        RecordingListener listener = new RecordingListener();
+        timeline.setListener(listener);
+        timeline.add("a", message("a"));
+        timeline.add("c", message("c"));
+
+        timeline.add("b", message("b"));
+
+        assertEquals("inserted 1", listener.events.get(2));
+        assertEquals("b", timeline.getKey(1));
+        assertEquals("c", timeline.getKey(2));
+    }
+
+    @Test
+    public void add_existingKeyIsAChange() {
+        ChatTimeline timeline = new ChatTimeline();
+        RecordingListener listener = new RecordingListener();
+        timeline.setListener(listener);
+        timeline.add("a", message("a"));
+        timeline.add("b", message("b"));
+
+        timeline.add("a", message("edited"));
+
+        assertEquals(2, timeline.size());
+        assertEquals("changed 0", listener.events.get(2));
+        assertEquals("edited", timeline.get(0).getMessage());
+    }
+
+    @Test
+    public void legacyUuidKeys_comeBeforePushKeys() {
+        String legacyA = "0f8e7a52-3c1b-4d2e-9a8b-1c2d3e4f5a6b";
+        String legacyB = "c4d5e6f7-0a1b-4c2d-8e9f-a0b1c2d3e4f5";
+        ChatTimeline timeline = new ChatTimeline();
+        RecordingListener listener = new RecordingListener();
+        timeline.setListener(listener);
+        timeline.add(legacyB, message("legacy b"));
+        timeline.add("-NxA0000000000000001", message("first push"));
+
+        timeline.add(legacyA, message("legacy a"));
+        timeline.add("-NxA0000000000000002", message("second push"));
+
+        assertEquals("inserted 0", listener.events.get(2));
+        assertEquals("inserted 3", listener.events.get(3));
+        assertEquals(legacyA, timeline.getKey(0));
+        assertEquals(legacyB, timeline.getKey(1));
+        assertEquals("-NxA0000000000000001", timeline.getKey(2));
+        assertEquals("-NxA0000000000000002", timeline.getKey(3));
+        assertEquals(1, timeline.indexOf(legacyB));
+    }
+
+    @Test
+    public void migratedKey_isTheSameMessageAsItsUuid() {
+        String legacy = "0f8e7a52-3c1b-4d2e-9a8b-1c2d3e4f5a6b";
+        ChatTimeline timeline = new ChatTimeline();
+        timeline.add(legacy, message("before migration"));
+
+        timeline.add(ChatTimeline.LEGACY_PREFIX + legacy, message("after migration"));
+
+        assertEquals(1, timeline.size());
+        assertEquals("after migration", timeline.get(0).getMessage());
+    }
+
+    @Test
+    public void remove_reportsPositionOrMissing() {
+        FakeRoom room = new FakeRoom();
+        String first = room.push("first");
+        room.push("second");
+        ChatTimeline timeline = new ChatTimeline();
+        RecordingListener listener = new RecordingListener();
+        timeline.setListener(listener);
+        room.attach(timeline);
+
+        room.remove(first);
+
+        assertEquals("removed 0", listener.events.get(2));
+        assertEquals(1, timeline.size());
+        assertEquals("second", timeline.get(0).getMessage());
+        assertEquals(-1, timeline.remove(first));
+        assertEquals(-1, timeline.indexOf(first));
+    }
+
+    private static MessageModel message(String text) {
+        return new MessageModel(text, "sender", text);
+    }
+
+    // Stands in for a Firebase room: children kept in key order, attach replays them as
+    // child-added events and later writes are delivered one child at a time
+    private static class FakeRoom {
+        private final TreeMap<String, MessageModel> children = new TreeMap<>();
+        private ChatTimeline attached;
+        private long nextKey = 1_000_000;
+        int delivered;
+
+        String push(String text) {
+            // Fixed width, so string order matches push order the way Firebase push keys do
+            String key = String.format(Locale.US, "-K%012d", nextKey++);
+            MessageModel model = new MessageModel(key, "sender", text);
+            children.put(key, model);
+            if (attached != null) {
+                delivered++;
+                attached.add(key, model);
+            }
+            return key;
+        }
+
+        void remove(String key) {
+            children.remove(key);
+            if (attached != null) {
+                delivered++;
+                attached.remove(key);
+            }
+        }
+
+        void attach(ChatTimeline timeline) {
+            attached = timeline;
+            for (Map.Entry<String, MessageModel> child : children.entrySet()) {
+                delivered++;
+                timeline.add(child.getKey(), child.getValue());
+            }
+        }
+    }
+
+    private static class RecordingListener implements ChatTimeline.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position) {
+            events.add("inserted " + position);
+        }
+
+        @Override
+        public void onChanged(int position) {
+            events.add("changed " + position);
+        }
+
+        @Override
+        public void onRemoved(int position) {
+            events.add("removed " + position);
+        }
+    }
+}
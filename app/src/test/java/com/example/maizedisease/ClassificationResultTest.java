@@ -0,0 +1,38 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClassificationResultTest {
+
+    private static final String[] LABELS = {"Blight", "Common Rust", "Gray Leaf Spot", "Healthy"};
+
+    @Test
+    public void fromScores_ranksTopK() {
+        ClassificationResult result = ClassificationResult.fromScores(new float[]{0.1f, 0.6f, 0.05f, 0.25f}, LABELS, 3);
+
+        assertEquals(3, result.getRankCount());
+        assertEquals(1, result.getIndexAtRank(0));
+        assertEquals(3, result.getIndexAtRank(1));
+        assertEquals(0, result.getIndexAtRank(2));
+        assertEquals("Common Rust", result.getTopLabel());
+        assertEquals(0.6f, result.getTopScore(), 0f);
+    }
+
+    @Test
+    public void fromScores_keepsFirstIndexOnTies() {
+        ClassificationResult result = ClassificationResult.fromScores(new float[]{0.4f, 0.4f, 0.1f, 0.1f}, LABELS, 2);
+
+        assertEquals(0, result.getIndexAtRank(0));
+        assertEquals(1, result.getIndexAtRank(1));
+    }
+
+    @Test
+    public void fromScores_clampsKToClassCount() {
+        ClassificationResult result = ClassificationResult.fromScores(new float[]{0.2f, 0.8f}, LABELS, 5);
+
+        assertEquals(2, result.getRankCount());
+        assertEquals("Common Rust", result.getTopLabel());
+    }
+}
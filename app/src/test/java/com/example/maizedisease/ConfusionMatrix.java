@@ -0,0 +1,131 @@
+package com.example.maizedisease;
+
+import java.util.Locale;
+
+// Counts of true label against predicted label, plus how many predictions fell below the
+// confidence threshold and would have been shown as "try again" in the app. Rejected predictions
+// still count in the matrix, so it describes the model on its own.
+final class ConfusionMatrix {
+
+    private final String[] labels;
+    private final int[][] counts;
+    private final int[] rejected;
+    private final int[] acceptedCorrect;
+    private int total;
+
+    ConfusionMatrix(String[] labels) {
+        this.labels = labels;
+        this.counts = new int[labels.length][labels.length];
+        this.rejected = new int[labels.length];
+        this.acceptedCorrect = new int[labels.length];
+    }
+
+    synchronized void add(int actual, int predicted, boolean accepted) {
+        counts[actual][predicted]++;
+        total++;
+        if (!accepted) {
+            rejected[actual]++;
+        } else if (actual == predicted) {
+            acceptedCorrect[actual]++;
+        }
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    int getCount(int actual, int predicted) {
+        return counts[actual][predicted];
+    }
+
+    double getAccuracy() {
+        int correct = 0;
+        for (int i = 0; i < labels.length; i++) {
+            correct += counts[i][i];
+        }
+        return ratio(correct, total);
+    }
+
+    // Of everything predicted as this class, how much really was
+    double getPrecision(int label) {
+        int predicted = 0;
+        for (int[] row : counts) {
+            predicted += row[label];
+        }
+        return ratio(counts[label][label], predicted);
+    }
+
+    // Of everything that really was this class, how much was found
+    double getRecall(int label) {
+        return ratio(counts[label][label], rowTotal(label));
+    }
+
+    double getF1(int label) {
+        double precision = getPrecision(label);
+        double recall = getRecall(label);
+        return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+    }
+
+    double getRejectRate() {
+        int sum = 0;
+        for (int count : rejected) {
+            sum += count;
+        }
+        return ratio(sum, total);
+    }
+
+    double getRejectRate(int label) {
+        return ratio(rejected[label], rowTotal(label));
+    }
+
+    // Accuracy over the predictions the app would actually have shown
+    double getAcceptedAccuracy() {
+        int correct = 0;
+        int accepted = total;
+        for (int i = 0; i < labels.length; i++) {
+            correct += acceptedCorrect[i];
+            accepted -= rejected[i];
+        }
+        return ratio(correct, accepted);
+    }
+
+    String format() {
+        int width = 8;
+        for (String label : labels) {
+            width = Math.max(width, label.length() + 2);
+        }
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%-" + width + "s", "actual\\pred"));
+        for (String label : labels) {
+            out.append(String.format(Locale.US, "%" + width + "s", label));
+        }
+        out.append('\n');
+        for (int i = 0; i < labels.length; i++) {
+            out.append(String.format(Locale.US, "%-" + width + "s", labels[i]));
+            for (int j = 0; j < labels.length; j++) {
+                out.append(String.format(Locale.US, "%" + width + "d", counts[i][j]));
+            }
+            out.append('\n');
+        }
+        out.append('\n');
+        out.append(String.format(Locale.US, "%-" + width + "s%10s%10s%10s%10s%10s%n", "class", "precision", "recall",
+                "f1", "rejected", "images"));
+        for (int i = 0; i < labels.length; i++) {
+            out.append(String.format(Locale.US, "%-" + width + "s%10.3f%10.3f%10.3f%10.3f%10d%n", labels[i],
+                    getPrecision(i), getRecall(i), getF1(i), getRejectRate(i), rowTotal(i)));
+        }
+        return out.toString();
+    }
+
+    private int rowTotal(int label) {
+        int sum = 0;
+        for (int count : counts[label]) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static double ratio(int numerator, int denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConfusionMatrixTest {
+
+    private static final String[] LABELS = {"Blight", "Common Rust", "Gray Leaf Spot", "Healthy"};
+
+    @Test
+    public void precisionRecallAndRejects() {
+        ConfusionMatrix matrix = new ConfusionMatrix(LABELS);
+        // Blight: 3 right, 1 called Common Rust
+        matrix.add(0, 0, true);
+        matrix.add(0, 0, true);
+        matrix.add(0, 0, false);
+        matrix.add(0, 1, true);
+        // Common Rust: 1 right, 1 called Blight below the threshold
+        matrix.add(1, 1, true);
+        matrix.add(1, 0, false);
+
+        assertEquals(6, matrix.getTotal());
+        assertEquals(4.0 / 6, matrix.getAccuracy(), 1e-9);
+        assertEquals(3.0 / 4, matrix.getPrecision(0), 1e-9);
+        assertEquals(3.0 / 4, matrix.getRecall(0), 1e-9);
+        assertEquals(1.0 / 2, matrix.getPrecision(1), 1e-9);
+        assertEquals(1.0 / 2, matrix.getRecall(1), 1e-9);
+        assertEquals(2.0 / 6, matrix.getRejectRate(), 1e-9);
+        assertEquals(1.0 / 2, matrix.getRejectRate(1), 1e-9);
+        // Shown: Blight x2 right, Blight->Rust wrong, Rust right
+        assertEquals(3.0 / 4, matrix.getAcceptedAccuracy(), 1e-9);
+    }
+
+    @Test
+    public void emptyClassesScoreZero() {
+        ConfusionMatrix matrix = new ConfusionMatrix(LABELS);
+        matrix.add(0, 0, true);
+
+        assertEquals(0, matrix.getPrecision(3), 0);
+        assertEquals(0, matrix.getRecall(3), 0);
+        assertEquals(0, matrix.getF1(3), 0);
+    }
+
+    @Test
+    public void labelIndex_matchesFolderNames() {
+        assertEquals(1, ModelEvaluator.labelIndex("Common_Rust", LABELS));
+        assertEquals(2, ModelEvaluator.labelIndex("gray leaf spot", LABELS));
+        assertEquals(-1, ModelEvaluator.labelIndex("Northern Blight", LABELS));
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.maizedisease;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tensorflow.lite.Interpreter;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+// Hot paths of a single prediction, on the desktop JVM. Skipped unless run with -Pbenchmark:
+//   ./gradlew :app:testDebugUnitTest -Pbenchmark --tests '*HotPathBenchmark'
+// Results land in app/build/benchmarks/HotPathBenchmark.json.
+public class HotPathBenchmark {
+
+    // The limit the old compressImage() loop squeezed every picked photo under
+    private static final int LEGACY_MAX_IMAGE_BYTES = 1024 * 1024;
+    private static final int SOURCE_WIDTH = 2048;
+    private static final int SOURCE_HEIGHT = 1536;
+
+    private static Microbenchmark benchmark;
+    private static byte[] sourceJpeg;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        Assume.assumeTrue("Run with -Pbenchmark", Microbenchmark.isEnabled());
+        benchmark = new Microbenchmark("HotPathBenchmark");
+        sourceJpeg = encodeJpeg(syntheticLeaf(SOURCE_WIDTH, SOURCE_HEIGHT), 0.95f);
+    }
+
+    @AfterClass
+    public static void writeReport() throws Exception {
+        if (benchmark != null) {
+            benchmark.write();
+        }
+    }
+
+    // What MainActivity used to do: full decode, then re-encode at falling quality until under 1 MB
+    @Test
+    public void jpegSizing_legacyQualityLoop() throws Exception {
+        benchmark.measure("jpegSizing_legacyQualityLoop", () -> {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(sourceJpeg));
+            byte[] encoded = encodeJpeg(decoded, 1f);
+            float quality = 1f;
+            while (encoded.length > LEGACY_MAX_IMAGE_BYTES && quality > 0f) {
+                quality -= 0.1f;
+                encoded = encodeJpeg(decoded, Math.max(quality, 0f));
+            }
+            BufferedImage result = ImageIO.read(new ByteArrayInputStream(encoded));
+            return scale(result, InferenceEngine.INPUT_SIZE, InferenceEngine.INPUT_SIZE);
+        });
+    }
+
+    // What ImageLoader does now: subsample while decoding, then one filtered scale to model size
+    @Test
+    public void jpegSizing_subsampledDecode() throws Exception {
+        benchmark.measure("jpegSizing_subsampledDecode", () -> {
+            int sampleSize = ImageLoader.calculateInSampleSize(SOURCE_WIDTH, SOURCE_HEIGHT, ImageLoader.PREVIEW_MAX_SIDE);
+            BufferedImage decoded = decodeSubsampled(sourceJpeg, sampleSize);
+            return scale(decoded, InferenceEngine.INPUT_SIZE, InferenceEngine.INPUT_SIZE);
+        });
+    }
+
+    @Test
+    public void tensor_convertPixelsFloat32() throws Exception {
+        int[] pixels = randomPixels();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TensorPreprocessor.INPUT_BYTES).order(ByteOrder.nativeOrder());
+        benchmark.measure("tensor_convertPixelsFloat32", () -> {
+            buffer.clear();
+            TensorPreprocessor.convertPixels(pixels, pixels.length, buffer);
+            return buffer;
+        });
+    }
+
+    @Test
+    public void tensor_quantizePixelsUint8() throws Exception {
+        int[] pixels = randomPixels();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TensorPreprocessor.INPUT_PIXELS * 3).order(ByteOrder.nativeOrder());
+        benchmark.measure("tensor_quantizePixelsUint8", () -> {
+            buffer.clear();
+            TensorPreprocessor.quantizePixels(pixels, pixels.length, buffer, 1f, 0, false);
+            return buffer;
+        });
+    }
+
+    @Test
+    public void topK_modelClasses() throws Exception {
+        String[] labels = {"Blight", "Common Rust", "Gray Leaf Spot", "Healthy"};
+        float[] scores = {0.12f, 0.71f, 0.09f, 0.08f};
+        benchmark.measure("topK_modelClasses", () ->
+                ClassificationResult.fromScores(scores, labels, ClassificationResult.DEFAULT_TOP_K));
+    }
+
+    // A 1000-class head, so a regression in the ranking loop is visible above timer noise
+    @Test
+    public void topK_thousandClasses() throws Exception {
+        Random random = new Random(3);
+        String[] labels = new String[1000];
+        float[] scores = new float[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = "class" + i;
+            scores[i] = random.nextFloat();
+        }
+        benchmark.measure("topK_thousandClasses", () ->
+                ClassificationResult.fromScores(scores, labels, ClassificationResult.DEFAULT_TOP_K));
+    }
+
+    @Test
+    public void interpreter_run() throws Exception {
+        File modelFile = new File(System.getProperty("benchmark.model", "src/main/ml/maizeModel.tflite"));
+        Assume.assumeTrue("Model not found at " + modelFile.getAbsolutePath(), modelFile.isFile());
+        MappedByteBuffer model;
+        try (RandomAccessFile file = new RandomAccessFile(modelFile, "r");
+             FileChannel channel = file.getChannel()) {
+            model = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        Interpreter interpreter;
+        try {
+            interpreter = new Interpreter(model, new Interpreter.Options().setNumThreads(
+                    Math.min(4, Runtime.getRuntime().availableProcessors())));
+        } catch (UnsatisfiedLinkError | ExceptionInInitializerError | NoClassDefFoundError e) {
+            // The Android artifact only ships device .so files; a desktop libtensorflowlite_jni must be
+            // on java.library.path for this one
+            Assume.assumeNoException("TensorFlow Lite native library not available on this JVM", e);
+            return;
+        }
+        try {
+            ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes())
+                    .order(ByteOrder.nativeOrder());
+            TensorPreprocessor.convertPixels(randomPixels(), TensorPreprocessor.INPUT_PIXELS, input);
+            ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes())
+                    .order(ByteOrder.nativeOrder());
+            benchmark.measure("interpreter_run", () -> {
+                input.rewind();
+                output.rewind();
+                interpreter.run(input, output);
+                return output;
+            });
+        } finally {
+            interpreter.close();
+        }
+    }
+
+    private static BufferedImage decodeSubsampled(byte[] jpeg, int sampleSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            try {
+                reader.setInput(in);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    // Green with per-pixel noise and a few brown patches, so JPEG sizes are photo-like rather than tiny
+    private static BufferedImage syntheticLeaf(int width, int height) {
+        Random random = new Random(11);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean lesion = ((x / 97) * 31 + (y / 89) * 17) % 13 == 0;
+                int r = lesion ? 120 + random.nextInt(40) : 40 + random.nextInt(50);
+                int g = lesion ? 80 + random.nextInt(30) : 120 + random.nextInt(80);
+                int b = 20 + random.nextInt(40);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int[] randomPixels() {
+        Random random = new Random(42);
+        int[] pixels = new int[TensorPreprocessor.INPUT_PIXELS];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}
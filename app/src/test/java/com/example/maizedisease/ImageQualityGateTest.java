@@ -0,0 +1,105 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImageQualityGateTest {
+
+    private static final int SIZE = 128;
+    private final ImageQualityGate.Config config = new ImageQualityGate.Config();
+
+    @Test
+    public void evaluate_acceptsTexturedLeaf() {
+        ImageQualityGate.Verdict verdict = ImageQualityGate.evaluate(leaf(1f), SIZE, SIZE, config);
+        assertEquals(verdict.toString(), ImageQualityGate.Reason.OK, verdict.reason);
+        assertTrue(verdict.leafFraction > 0.8f);
+    }
+
+    @Test
+    public void evaluate_rejectsBlurredLeaf() {
+        ImageQualityGate.Verdict sharp = ImageQualityGate.evaluate(leaf(1f), SIZE, SIZE, config);
+        ImageQualityGate.Verdict blurred = ImageQualityGate.evaluate(boxBlur(leaf(1f), 6), SIZE, SIZE, config);
+        assertEquals(blurred.toString(), ImageQualityGate.Reason.BLURRY, blurred.reason);
+        assertTrue(blurred.sharpness < sharp.sharpness / 10);
+    }
+
+    @Test
+    public void evaluate_rejectsDarkAndOverexposed() {
+        assertEquals(ImageQualityGate.Reason.TOO_DARK,
+                ImageQualityGate.evaluate(leaf(0.15f), SIZE, SIZE, config).reason);
+
+        int[] white = new int[SIZE * SIZE];
+        Arrays.fill(white, 0xFFFFFFFF);
+        assertEquals(ImageQualityGate.Reason.TOO_BRIGHT, ImageQualityGate.evaluate(white, SIZE, SIZE, config).reason);
+    }
+
+    @Test
+    public void evaluate_rejectsFrameWithoutLeaf() {
+        // Grey, textured and well exposed, like a photo of the soil or a wall
+        Random random = new Random(5);
+        int[] pixels = new int[SIZE * SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            int v = 90 + random.nextInt(80);
+            pixels[i] = 0xFF000000 | (v << 16) | (v << 8) | (v - 10);
+        }
+        assertEquals(ImageQualityGate.Reason.NO_LEAF, ImageQualityGate.evaluate(pixels, SIZE, SIZE, config).reason);
+    }
+
+    @Test
+    public void isLeaf_coversGreensButNotLesionsOrGrey() {
+        assertTrue(ImageQualityGate.isLeaf(60, 150, 40));
+        assertTrue(ImageQualityGate.isLeaf(150, 170, 60));
+        assertFalse(ImageQualityGate.isLeaf(140, 80, 40));
+        assertFalse(ImageQualityGate.isLeaf(128, 130, 128));
+        assertFalse(ImageQualityGate.isLeaf(5, 20, 5));
+    }
+
+    @Test
+    public void laplacianVariance_isZeroOnFlatImage() {
+        int[] luma = new int[SIZE * SIZE];
+        Arrays.fill(luma, 100);
+        assertEquals(0f, ImageQualityGate.laplacianVariance(luma, SIZE, SIZE), 0f);
+    }
+
+    // Leaf green with fine vein texture; brightness scales every channel
+    private static int[] leaf(float brightness) {
+        Random random = new Random(3);
+        int[] pixels = new int[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int vein = (x % 6 == 0) ? 50 : 0;
+                int r = (int) ((50 + vein + random.nextInt(30)) * brightness);
+                int g = (int) ((130 + vein + random.nextInt(50)) * brightness);
+                int b = (int) ((30 + random.nextInt(30)) * brightness);
+                pixels[y * SIZE + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return pixels;
+    }
+
+    private static int[] boxBlur(int[] pixels, int radius) {
+        int[] out = new int[pixels.length];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int r = 0, g = 0, b = 0, n = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        int sx = Math.min(SIZE - 1, Math.max(0, x + dx));
+                        int sy = Math.min(SIZE - 1, Math.max(0, y + dy));
+                        int p = pixels[sy * SIZE + sx];
+                        r += (p >> 16) & 0xFF;
+                        g += (p >> 8) & 0xFF;
+                        b += p & 0xFF;
+                        n++;
+                    }
+                }
+                out[y * SIZE + x] = 0xFF000000 | ((r / n) << 16) | ((g / n) << 8) | (b / n);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.maizedisease;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @After
+    public void tearDown() {
+        PipelineMetrics.setEnabled(false);
+        PipelineMetrics.reset();
+    }
+
+    @Test
+    public void bucketsAreContiguousAndBounded() {
+        for (long micros = 0; micros < 1_000_000; micros++) {
+            int bucket = LatencyHistogram.bucketFor(micros);
+            assertTrue(micros <= LatencyHistogram.upperBound(bucket));
+            assertTrue(bucket == 0 || micros > LatencyHistogram.upperBound(bucket - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketFor(Long.MAX_VALUE / 1000));
+    }
+
+    @Test
+    public void percentilesAreWithinBucketWidth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.recordNanos(ms * 1_000_000L);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50_500, histogram.getMeanMicros());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertWithin(50_000, histogram.getPercentileMicros(50));
+        assertWithin(95_000, histogram.getPercentileMicros(95));
+        assertWithin(99_000, histogram.getPercentileMicros(99));
+        assertEquals(100_000, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        PipelineMetrics.setEnabled(false);
+
+        long start = PipelineMetrics.start();
+        PipelineMetrics.stop(PipelineMetrics.Stage.INFERENCE, start);
+        PipelineMetrics.record(PipelineMetrics.Stage.QUEUE_WAIT, 1_000_000);
+
+        assertEquals(0, start);
+        assertEquals(0, PipelineMetrics.histogram(PipelineMetrics.Stage.INFERENCE).getCount());
+        assertEquals(0, PipelineMetrics.histogram(PipelineMetrics.Stage.QUEUE_WAIT).getCount());
+    }
+
+    @Test
+    public void enabledTimersDoNotAllocate() {
+        PipelineMetrics.setEnabled(true);
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            PipelineMetrics.stop(PipelineMetrics.Stage.PREPROCESS, PipelineMetrics.start());
+        }
+        threadBean.getThreadAllocatedBytes(threadId);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            PipelineMetrics.stop(PipelineMetrics.Stage.PREPROCESS, PipelineMetrics.start());
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(2L * iterations, PipelineMetrics.histogram(PipelineMetrics.Stage.PREPROCESS).getCount());
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.13);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LiveScannerTest {
+
+    private static final String[] LABELS = {"Blight", "Common Rust", "Gray Leaf Spot", "Healthy"};
+
+    @Test
+    public void slowClassifierDropsFramesAndClosesEveryOne() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(64, 48, 2);
+        AtomicInteger results = new AtomicInteger();
+        LiveScanner scanner = new LiveScanner(source, frame -> {
+            Thread.sleep(20);
+            return ClassificationResult.fromScores(new float[]{0.1f, 0.2f, 0.3f, 0.4f}, LABELS, 1);
+        }, Runnable::run);
+
+        scanner.start(new LiveScanner.Listener() {
+            @Override
+            public void onResult(ClassificationResult result) {
+                results.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.toString());
+            }
+        });
+        Thread.sleep(300);
+        scanner.stop();
+
+        assertTrue(scanner.getProcessedFrames() > 0);
+        assertTrue(scanner.getDroppedFrames() > 0);
+        assertEquals(scanner.getProcessedFrames(), results.get());
+        // Frames offered after stop() are closed straight away, so nothing is leaked either way
+        assertEquals(source.getEmitted(), source.getClosed());
+        assertTrue(scanner.getProcessedFrames() + scanner.getDroppedFrames() <= scanner.getReceivedFrames());
+    }
+
+    @Test
+    public void classifierErrorsReachListener() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(64, 48, 5);
+        AtomicInteger errors = new AtomicInteger();
+        LiveScanner scanner = new LiveScanner(source, frame -> {
+            throw new IllegalStateException("boom");
+        }, Runnable::run);
+
+        scanner.start(new LiveScanner.Listener() {
+            @Override
+            public void onResult(ClassificationResult result) {
+                fail("No result expected");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                errors.incrementAndGet();
+            }
+        });
+        Thread.sleep(100);
+        scanner.stop();
+
+        assertTrue(errors.get() > 0);
+        assertEquals(0, scanner.getProcessedFrames());
+        assertEquals(source.getEmitted(), source.getClosed());
+    }
+}
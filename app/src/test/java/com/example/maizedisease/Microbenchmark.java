@@ -0,0 +1,140 @@
+package com.example.maizedisease;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A small JMH-style harness for plain JVM unit tests: warm up, then time a fixed number of samples
+// and record per-operation time and allocation. Results are written as JSON under
+// app/build/benchmarks so runs from two commits can be diffed.
+final class Microbenchmark {
+
+    interface Body {
+        // The return value is consumed so the JIT cannot drop the work
+        Object run() throws Exception;
+    }
+
+    static final class Result {
+        final String name;
+        final int samples;
+        final int opsPerSample;
+        final double meanNs;
+        final double medianNs;
+        final double p90Ns;
+        final double minNs;
+        final double bytesPerOp;
+
+        Result(String name, int samples, int opsPerSample, double meanNs, double medianNs, double p90Ns,
+               double minNs, double bytesPerOp) {
+            this.name = name;
+            this.samples = samples;
+            this.opsPerSample = opsPerSample;
+            this.meanNs = meanNs;
+            this.medianNs = medianNs;
+            this.p90Ns = p90Ns;
+            this.minNs = minNs;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    private static final long WARM_UP_NANOS = 1_000_000_000L;
+    private static final long TARGET_SAMPLE_NANOS = 10_000_000L;
+    private static final int SAMPLES = 30;
+
+    private final String suite;
+    private final List<Result> results = new ArrayList<>();
+    private volatile Object sink;
+
+    Microbenchmark(String suite) {
+        this.suite = suite;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean("benchmark.enabled");
+    }
+
+    Result measure(String name, Body body) throws Exception {
+        // Warm up for a fixed time, which also tells us how many ops fit in one sample
+        long warmUpStart = System.nanoTime();
+        long warmUpOps = 0;
+        while (System.nanoTime() - warmUpStart < WARM_UP_NANOS) {
+            sink = body.run();
+            warmUpOps++;
+        }
+        double nanosPerOp = (double) (System.nanoTime() - warmUpStart) / warmUpOps;
+        int opsPerSample = (int) Math.max(1, Math.min(Integer.MAX_VALUE, TARGET_SAMPLE_NANOS / nanosPerOp));
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        double[] samples = new double[SAMPLES];
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int s = 0; s < SAMPLES; s++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < opsPerSample; i++) {
+                sink = body.run();
+            }
+            samples[s] = (double) (System.nanoTime() - start) / opsPerSample;
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        double mean = 0;
+        for (double sample : samples) {
+            mean += sample;
+        }
+        mean /= SAMPLES;
+        double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        Result result = new Result(name, SAMPLES, opsPerSample, mean, sorted[SAMPLES / 2],
+                sorted[(int) Math.ceil(SAMPLES * 0.9) - 1], sorted[0],
+                (double) allocated / ((long) SAMPLES * opsPerSample));
+        results.add(result);
+        System.out.printf("%-40s %12.1f ns/op (median %.1f, p90 %.1f) %10.1f B/op%n",
+                suite + "." + name, result.meanNs, result.medianNs, result.p90Ns, result.bytesPerOp);
+        return result;
+    }
+
+    void write() throws IOException, JSONException {
+        JSONObject report = new JSONObject();
+        report.put("suite", suite);
+        report.put("commit", System.getProperty("benchmark.commit", "unknown"));
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        report.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        report.put("cpus", Runtime.getRuntime().availableProcessors());
+        JSONArray benchmarks = new JSONArray();
+        for (Result result : results) {
+            JSONObject json = new JSONObject();
+            json.put("name", result.name);
+            json.put("samples", result.samples);
+            json.put("opsPerSample", result.opsPerSample);
+            json.put("meanNs", result.meanNs);
+            json.put("medianNs", result.medianNs);
+            json.put("p90Ns", result.p90Ns);
+            json.put("minNs", result.minNs);
+            json.put("bytesPerOp", result.bytesPerOp);
+            benchmarks.put(json);
+        }
+        report.put("benchmarks", benchmarks);
+
+        File directory = new File(System.getProperty("benchmark.outputDir", "build/benchmarks"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File file = new File(directory, suite + ".json");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(report.toString(2).getBytes(StandardCharsets.UTF_8));
+        }
+        System.out.println("Wrote " + file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,431 @@
+package com.example.maizedisease;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import org.tensorflow.lite.support.common.FileUtil;
+import org.tensorflow.lite.support.metadata.MetadataExtractor;
+import org.tensorflow.lite.support.metadata.schema.TensorMetadata;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+// Accuracy and throughput of a .tflite model over a directory of labeled leaf images, on the
+// desktop JVM. Images live under <images>/<label>/..., where the folder name is a model label
+// (case and underscores for spaces do not matter). Each image goes through the same steps as a
+// gallery pick in the app: subsampled decode to PREVIEW_MAX_SIDE, a bilinear scale to the model
+// input, TensorPreprocessor's pixel encoding, and labels from the model metadata or labels.txt.
+// Run through Gradle, which puts the test classpath together:
+//   ./gradlew :app:evalModel -PevalImages=/data/maize/test -PevalThreads=4 -PtfliteNativeDir=/opt/tflite
+// The tensorflow-lite artifact only ships Android libraries, so tfliteNativeDir must hold a desktop
+// build of libtensorflowlite_jni.
+public final class ModelEvaluator {
+
+    private static final String[] IMAGE_SUFFIXES = {".jpg", ".jpeg", ".png", ".bmp"};
+
+    private static final class Options {
+        File images;
+        File model = new File("src/main/ml/maizeModel.tflite");
+        File labels = new File("src/main/assets/" + ModelLabels.LABELS_ASSET);
+        File output = new File("build/eval/model_eval.json");
+        int threads = 1;
+        int interpreterThreads = 1;
+        float threshold = MainActivity.CONFIDENCE_THRESHOLD;
+    }
+
+    static final class Sample {
+        final File file;
+        final int label;
+
+        Sample(File file, int label) {
+            this.file = file;
+            this.label = label;
+        }
+    }
+
+    private ModelEvaluator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        MappedByteBuffer model = map(options.model);
+        String[] labels = loadLabels(model, options.labels);
+        List<Sample> samples = findSamples(options.images, labels);
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("No images under " + options.images);
+        }
+        System.out.printf(Locale.US, "%d images, %d classes, %d worker threads x %d interpreter threads%n",
+                samples.size(), labels.length, options.threads, options.interpreterThreads);
+
+        ConfusionMatrix matrix = new ConfusionMatrix(labels);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong decodeNanos = new AtomicLong();
+        AtomicLong inferenceNanos = new AtomicLong();
+        CountDownLatch ready = new CountDownLatch(options.threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < options.threads; t++) {
+            Thread worker = new Thread(() -> {
+                try (Worker w = new Worker(model, labels.length, options.interpreterThreads)) {
+                    // Warm-up inference outside the timed run
+                    w.classify(new int[TensorPreprocessor.INPUT_PIXELS]);
+                    ready.countDown();
+                    start.await();
+                    int index;
+                    while ((index = next.getAndIncrement()) < samples.size()) {
+                        Sample sample = samples.get(index);
+                        long decodeStart = System.nanoTime();
+                        int[] pixels;
+                        try {
+                            pixels = loadModelInput(sample.file);
+                        } catch (IOException e) {
+                            System.err.println("Skipping " + sample.file + ": " + e.getMessage());
+                            failed.incrementAndGet();
+                            continue;
+                        }
+                        long inferenceStart = System.nanoTime();
+                        ClassificationResult result = ClassificationResult.fromScores(w.classify(pixels), labels,
+                                ClassificationResult.DEFAULT_TOP_K);
+                        long end = System.nanoTime();
+                        decodeNanos.addAndGet(inferenceStart - decodeStart);
+                        inferenceNanos.addAndGet(end - inferenceStart);
+                        matrix.add(sample.label, result.getTopIndex(), result.getTopScore() >= options.threshold);
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                    ready.countDown();
+                }
+            }, "eval-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        ready.await();
+        long wallStart = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Evaluation failed", errors.get(0));
+        }
+
+        int evaluated = matrix.getTotal();
+        double imagesPerSecond = evaluated / wallSeconds;
+        double decodeMs = evaluated == 0 ? 0 : decodeNanos.get() / 1e6 / evaluated;
+        double inferenceMs = evaluated == 0 ? 0 : inferenceNanos.get() / 1e6 / evaluated;
+
+        System.out.println();
+        System.out.print(matrix.format());
+        System.out.println();
+        System.out.printf(Locale.US, "accuracy %.4f, rejected below %.2f: %.4f, accuracy when shown %.4f%n",
+                matrix.getAccuracy(), options.threshold, matrix.getRejectRate(), matrix.getAcceptedAccuracy());
+        System.out.printf(Locale.US, "%.1f images/s over %d threads; per image: decode+scale %.1f ms, inference %.1f ms%n",
+                imagesPerSecond, options.threads, decodeMs, inferenceMs);
+        if (failed.get() > 0) {
+            System.out.println(failed.get() + " images could not be decoded");
+        }
+
+        JSONObject report = new JSONObject();
+        report.put("model", options.model.getPath());
+        report.put("images", evaluated);
+        report.put("undecodable", failed.get());
+        report.put("threads", options.threads);
+        report.put("interpreterThreads", options.interpreterThreads);
+        report.put("threshold", (double) options.threshold);
+        report.put("accuracy", matrix.getAccuracy());
+        report.put("rejectRate", matrix.getRejectRate());
+        report.put("acceptedAccuracy", matrix.getAcceptedAccuracy());
+        report.put("imagesPerSecond", imagesPerSecond);
+        report.put("decodeMsPerImage", decodeMs);
+        report.put("inferenceMsPerImage", inferenceMs);
+        report.put("labels", new JSONArray(Arrays.asList(labels)));
+        JSONArray rows = new JSONArray();
+        JSONObject classes = new JSONObject();
+        for (int i = 0; i < labels.length; i++) {
+            JSONArray row = new JSONArray();
+            for (int j = 0; j < labels.length; j++) {
+                row.put(matrix.getCount(i, j));
+            }
+            rows.put(row);
+            JSONObject stats = new JSONObject();
+            stats.put("precision", matrix.getPrecision(i));
+            stats.put("recall", matrix.getRecall(i));
+            stats.put("f1", matrix.getF1(i));
+            stats.put("rejectRate", matrix.getRejectRate(i));
+            classes.put(labels[i], stats);
+        }
+        report.put("confusion", rows);
+        report.put("classes", classes);
+        File directory = options.output.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        try (OutputStream out = new FileOutputStream(options.output)) {
+            out.write(report.toString(2).getBytes(StandardCharsets.UTF_8));
+        }
+        System.out.println("Wrote " + options.output.getAbsolutePath());
+    }
+
+    // One interpreter per thread; they all read the same mapped model
+    private static final class Worker implements AutoCloseable {
+        private final Interpreter interpreter;
+        private final ByteBuffer input;
+        private final ByteBuffer output;
+        private final DataType inputType;
+        private final DataType outputType;
+        private final float inputScale;
+        private final int inputZeroPoint;
+        private final float outputScale;
+        private final int outputZeroPoint;
+        private final int classCount;
+
+        Worker(MappedByteBuffer model, int classCount, int interpreterThreads) {
+            interpreter = new Interpreter(model.duplicate().order(ByteOrder.nativeOrder()),
+                    new Interpreter.Options().setNumThreads(interpreterThreads));
+            Tensor inputTensor = interpreter.getInputTensor(0);
+            Tensor outputTensor = interpreter.getOutputTensor(0);
+            inputType = inputTensor.dataType();
+            inputScale = inputTensor.quantizationParams().getScale();
+            inputZeroPoint = inputTensor.quantizationParams().getZeroPoint();
+            outputType = outputTensor.dataType();
+            outputScale = outputTensor.quantizationParams().getScale();
+            outputZeroPoint = outputTensor.quantizationParams().getZeroPoint();
+            this.classCount = classCount;
+            input = ByteBuffer.allocateDirect(inputTensor.numBytes()).order(ByteOrder.nativeOrder());
+            output = ByteBuffer.allocateDirect(outputTensor.numBytes()).order(ByteOrder.nativeOrder());
+        }
+
+        // Same encoding and dequantization as InferenceEngine
+        float[] classify(int[] pixels) {
+            input.clear();
+            if (inputType == DataType.FLOAT32) {
+                TensorPreprocessor.convertPixels(pixels, TensorPreprocessor.INPUT_PIXELS, input);
+            } else {
+                TensorPreprocessor.quantizePixels(pixels, TensorPreprocessor.INPUT_PIXELS, input,
+                        inputScale == 0f ? 1f : inputScale, inputZeroPoint, inputType == DataType.INT8);
+            }
+            input.rewind();
+            output.rewind();
+            interpreter.run(input, output);
+            float[] scores = new float[classCount];
+            for (int i = 0; i < classCount; i++) {
+                if (outputType == DataType.FLOAT32) {
+                    scores[i] = output.getFloat(i * 4);
+                } else {
+                    byte q = output.get(i);
+                    int value = outputType == DataType.UINT8 ? q & 0xFF : q;
+                    scores[i] = (value - outputZeroPoint) * outputScale;
+                }
+            }
+            return scores;
+        }
+
+        @Override
+        public void close() {
+            interpreter.close();
+        }
+    }
+
+    // ImageLoader.load on the desktop: subsample while decoding, fit to PREVIEW_MAX_SIDE, then scale
+    // to the model input
+    static int[] loadModelInput(File file) throws IOException {
+        BufferedImage preview;
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                int sampleSize = ImageLoader.calculateInSampleSize(reader.getWidth(0), reader.getHeight(0),
+                        ImageLoader.PREVIEW_MAX_SIDE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                preview = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        int longSide = Math.max(preview.getWidth(), preview.getHeight());
+        if (longSide > ImageLoader.PREVIEW_MAX_SIDE) {
+            float factor = (float) ImageLoader.PREVIEW_MAX_SIDE / longSide;
+            preview = scale(preview, Math.round(preview.getWidth() * factor), Math.round(preview.getHeight() * factor));
+        }
+        int size = InferenceEngine.INPUT_SIZE;
+        return scale(preview, size, size).getRGB(0, 0, size, size, null, 0, size);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    // Model metadata first, then labels.txt, like ModelLabels
+    private static String[] loadLabels(MappedByteBuffer model, File labelsFile) throws IOException {
+        List<String> labels = null;
+        try {
+            MetadataExtractor extractor = new MetadataExtractor(model.duplicate());
+            if (extractor.hasMetadata()) {
+                TensorMetadata output = extractor.getOutputTensorMetadata(0);
+                for (int i = 0; i < output.associatedFilesLength() && labels == null; i++) {
+                    String name = output.associatedFiles(i).name();
+                    if (name != null) {
+                        labels = FileUtil.loadLabels(extractor.getAssociatedFile(name));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Exported without packed label files
+        }
+        if (labels == null) {
+            labels = new ArrayList<>();
+            for (String line : Files.readAllLines(labelsFile.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    labels.add(line.trim());
+                }
+            }
+        }
+        return labels.toArray(new String[0]);
+    }
+
+    static List<Sample> findSamples(File root, String[] labels) {
+        List<Sample> samples = new ArrayList<>();
+        File[] directories = root.listFiles(File::isDirectory);
+        if (directories == null) {
+            throw new IllegalArgumentException(root + " is not a directory");
+        }
+        Arrays.sort(directories);
+        for (File directory : directories) {
+            int label = labelIndex(directory.getName(), labels);
+            if (label < 0) {
+                throw new IllegalArgumentException("Folder " + directory.getName() + " is not one of the model labels "
+                        + Arrays.toString(labels));
+            }
+            collectImages(directory, label, samples);
+        }
+        return samples;
+    }
+
+    static int labelIndex(String folder, String[] labels) {
+        String normalized = folder.replace('_', ' ').trim();
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(normalized)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void collectImages(File directory, int label, List<Sample> samples) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectImages(file, label, samples);
+            } else if (isImage(file.getName())) {
+                samples.add(new Sample(file, label));
+            }
+        }
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase(Locale.US);
+        for (String suffix : IMAGE_SUFFIXES) {
+            if (lower.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r");
+             FileChannel channel = in.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[++i];
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (name) {
+                case "--images":
+                    options.images = new File(value);
+                    break;
+                case "--model":
+                    options.model = new File(value);
+                    break;
+                case "--labels":
+                    options.labels = new File(value);
+                    break;
+                case "--output":
+                    options.output = new File(value);
+                    break;
+                case "--threads":
+                    options.threads = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--interpreter-threads":
+                    options.interpreterThreads = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--threshold":
+                    options.threshold = Float.parseFloat(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        if (options.images == null) {
+            throw new IllegalArgumentException("Usage: ModelEvaluator --images <dir> [--model <file>] [--labels <file>]"
+                    + " [--threads N] [--interpreter-threads N] [--threshold T] [--output <file>]");
+        }
+        return options;
+    }
+}
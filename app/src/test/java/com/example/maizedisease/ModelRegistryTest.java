@@ -0,0 +1,127 @@
+package com.example.maizedisease;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.*;
+
+public class ModelRegistryTest {
+
+    private static final byte[] MODEL_V1 = "model one".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MODEL_V2 = "model two".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void install_storesModelWithChecksum() throws Exception {
+        ModelRegistry registry = new ModelRegistry(folder.getRoot());
+
+        ModelRegistry.Model model = registry.install(new ByteArrayInputStream(MODEL_V1), "1.0", sha256(MODEL_V1));
+
+        assertEquals("1.0", model.version);
+        assertEquals(MODEL_V1.length, model.sizeBytes);
+        assertTrue(model.file.isFile());
+        assertTrue(registry.verify(model));
+        assertNull(registry.getActive());
+    }
+
+    @Test
+    public void install_rejectsChecksumMismatch() throws Exception {
+        ModelRegistry registry = new ModelRegistry(folder.getRoot());
+
+        try {
+            registry.install(new ByteArrayInputStream(MODEL_V1), "1.0", sha256(MODEL_V2));
+            fail("Expected a checksum mismatch");
+        } catch (IOException expected) {
+        }
+
+        assertTrue(registry.getModels().isEmpty());
+        assertEquals(0, folder.getRoot().listFiles((dir, name) -> name.endsWith(".tflite")
+                || name.endsWith(".tmp")).length);
+    }
+
+    @Test
+    public void activeAndCandidateSurviveRestart() throws Exception {
+        ModelRegistry registry = new ModelRegistry(folder.getRoot());
+        registry.install(new ByteArrayInputStream(MODEL_V1), "1.0", sha256(MODEL_V1));
+        registry.install(new ByteArrayInputStream(MODEL_V2), "2.0", sha256(MODEL_V2));
+        registry.setActive("1.0");
+        registry.setCandidate("2.0");
+
+        ModelRegistry restarted = new ModelRegistry(folder.getRoot());
+
+        assertEquals(2, restarted.getModels().size());
+        assertEquals("1.0", restarted.getActive().version);
+        assertEquals("2.0", restarted.getCandidate().version);
+        assertEquals(sha256(MODEL_V2), restarted.getCandidate().sha256);
+    }
+
+    @Test
+    public void setActive_promotesCandidate() throws Exception {
+        ModelRegistry registry = new ModelRegistry(folder.getRoot());
+        registry.install(new ByteArrayInputStream(MODEL_V1), "1.0", sha256(MODEL_V1));
+        registry.setCandidate("1.0");
+
+        registry.setActive("1.0");
+
+        assertEquals("1.0", registry.getActive().version);
+        assertNull(registry.getCandidate());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void remove_refusesModelInUse() throws Exception {
+        ModelRegistry registry = new ModelRegistry(folder.getRoot());
+        registry.install(new ByteArrayInputStream(MODEL_V1), "1.0", sha256(MODEL_V1));
+        registry.setActive("1.0");
+
+        registry.remove("1.0");
+    }
+
+    @Test
+    public void verify_detectsDamagedFile() throws Exception {
+        ModelRegistry registry = new ModelRegistry(folder.getRoot());
+        ModelRegistry.Model model = registry.install(new ByteArrayInputStream(MODEL_V1), "1.0", sha256(MODEL_V1));
+
+        write(model.file, MODEL_V2);
+
+        assertFalse(registry.verify(model));
+    }
+
+    @Test
+    public void importPending_installsVerifiedAndRejectsTheRest() throws Exception {
+        File incoming = new File(folder.getRoot(), "incoming");
+        assertTrue(incoming.mkdirs());
+        write(new File(incoming, "1.0.tflite"), MODEL_V1);
+        write(new File(incoming, "1.0.sha256"), (sha256(MODEL_V1) + "  1.0.tflite\n").getBytes(StandardCharsets.UTF_8));
+        write(new File(incoming, "2.0.tflite"), MODEL_V2);
+        write(new File(incoming, "2.0.sha256"), sha256(MODEL_V1).getBytes(StandardCharsets.UTF_8));
+        ModelRegistry registry = new ModelRegistry(folder.getRoot());
+
+        assertEquals(1, registry.importPending().size());
+
+        assertNotNull(registry.getModel("1.0"));
+        assertNull(registry.getModel("2.0"));
+        assertFalse(new File(incoming, "1.0.tflite").exists());
+        assertTrue(new File(incoming, "2.0.tflite.rejected").exists());
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return ModelRegistry.toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
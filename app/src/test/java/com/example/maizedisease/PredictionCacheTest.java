@@ -0,0 +1,127 @@
+package com.example.maizedisease;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PredictionCacheTest {
+
+    private static final float[] SCORES = {0.1f, 0.7f, 0.15f, 0.05f};
+    private static final int COLOR = 0x3C6E2A;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void get_hitsAfterPutAndCountsMisses() {
+        PredictionCache cache = newCache("model-a");
+
+        assertNull(cache.get("key", 0L, COLOR));
+        cache.put("key", 0L, COLOR, SCORES);
+
+        assertArrayEquals(SCORES, cache.get("key", 0L, COLOR), 0f);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void get_survivesRestartThroughDiskTier() {
+        newCache("model-a").put("key", 0L, COLOR, SCORES);
+
+        PredictionCache restarted = newCache("model-a");
+
+        assertArrayEquals(SCORES, restarted.get("key", 0L, COLOR), 0f);
+    }
+
+    @Test
+    public void put_writesToDiskOnTheExecutor() {
+        List<Runnable> queued = new ArrayList<>();
+        PredictionCache cache = new PredictionCache(folder.getRoot(), 8, 16, queued::add);
+        cache.setModelId("model-a");
+        cache.put("key", 0L, COLOR, SCORES);
+
+        assertArrayEquals(SCORES, cache.get("key", 0L, COLOR), 0f);
+        assertEquals(0, folder.getRoot().list().length);
+
+        for (Runnable task : queued) {
+            task.run();
+        }
+        assertArrayEquals(SCORES, newCache("model-a").get("key", 0L, COLOR), 0f);
+    }
+
+    @Test
+    public void setModelId_invalidatesEntriesOfOtherModels() {
+        newCache("model-a").put("key", 0L, COLOR, SCORES);
+
+        PredictionCache cache = newCache("model-b");
+
+        assertNull(cache.get("key", 0L, COLOR));
+        // Only model-b's directory is left
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void get_matchesNearIdenticalPerceptualHash() {
+        PredictionCache cache = newCache("model-a");
+        cache.put("original", 0b1011L, COLOR, SCORES);
+
+        assertArrayEquals(SCORES, cache.get("reencoded", 0b0011L, COLOR + 0x010101), 0f);
+        assertNull(cache.get("different", 0xFFFFL, COLOR));
+    }
+
+    @Test
+    public void get_doesNotNearMatchADifferentPhotoWithACollidingHash() {
+        int size = InferenceEngine.INPUT_SIZE;
+        int[] green = new int[size * size];
+        int[] brown = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                // Both get brighter to the right, which is all the difference hash sees
+                int level = x * 255 / size;
+                green[y * size + x] = 0xFF000000 | (level << 8);
+                brown[y * size + x] = 0xFF000000 | (level << 16) | ((level / 2) << 8);
+            }
+        }
+        long greenHash = PredictionCache.differenceHash(green, size);
+        long brownHash = PredictionCache.differenceHash(brown, size);
+        assertTrue(Long.bitCount(greenHash ^ brownHash) <= PredictionCache.NEAR_MATCH_MAX_DISTANCE);
+
+        PredictionCache cache = newCache("model-a");
+        cache.put("healthy", greenHash, PredictionCache.meanColor(green), SCORES);
+
+        assertNull(cache.get("blighted", brownHash, PredictionCache.meanColor(brown)));
+    }
+
+    @Test
+    public void differenceHash_ignoresSmallPixelNoise() {
+        int size = InferenceEngine.INPUT_SIZE;
+        int[] pixels = new int[size * size];
+        int[] noisy = new int[size * size];
+        Random random = new Random(3);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int green = (x * 7 + y * 3) % 256;
+                pixels[y * size + x] = 0xFF000000 | (green << 8);
+                int jitter = Math.max(0, Math.min(255, green + random.nextInt(5) - 2));
+                noisy[y * size + x] = 0xFF000000 | (jitter << 8);
+            }
+        }
+
+        long distance = Long.bitCount(PredictionCache.differenceHash(pixels, size)
+                ^ PredictionCache.differenceHash(noisy, size));
+
+        assertTrue(distance <= PredictionCache.NEAR_MATCH_MAX_DISTANCE);
+    }
+
+    private PredictionCache newCache(String modelId) {
+        PredictionCache cache = new PredictionCache(folder.getRoot(), 8, 16, Runnable::run);
+        cache.setModelId(modelId);
+        return cache;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.maizedisease;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+// Runs ImageQualityGate with its default thresholds over a labeled sample set and reports how
+// often it agrees with the labels. Skipped unless a sample directory is given:
+//   ./gradlew :app:testDebugUnitTest -PqualitySamples=/path/to/samples --tests '*QualityGateValidation'
+// The directory has one subdirectory per expected verdict, named after ImageQualityGate.Reason
+// (ok, blurry, too_dark, too_bright, no_leaf). The report, with a suggested threshold per metric,
+// lands in app/build/reports/quality-gate/QualityGateValidation.json.
+public class QualityGateValidation {
+
+    // Highest share of usable photos a suggested threshold may turn away
+    private static final double MAX_FALSE_REJECT_RATE = 0.02;
+
+    private static final class Sample {
+        final String name;
+        final ImageQualityGate.Reason expected;
+        final ImageQualityGate.Verdict verdict;
+
+        Sample(String name, ImageQualityGate.Reason expected, ImageQualityGate.Verdict verdict) {
+            this.name = name;
+            this.expected = expected;
+            this.verdict = verdict;
+        }
+    }
+
+    @Test
+    public void validateDefaultThresholds() throws Exception {
+        String samplesPath = System.getProperty("quality.samples", "");
+        Assume.assumeFalse("Run with -PqualitySamples=<dir>", samplesPath.isEmpty());
+        File samplesDir = new File(samplesPath);
+        assertTrue(samplesDir + " is not a directory", samplesDir.isDirectory());
+
+        ImageQualityGate.Config config = new ImageQualityGate.Config();
+        List<Sample> samples = new ArrayList<>();
+        for (ImageQualityGate.Reason reason : ImageQualityGate.Reason.values()) {
+            File[] files = new File(samplesDir, reason.name().toLowerCase(Locale.US)).listFiles();
+            if (files == null) {
+                continue;
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                BufferedImage image = ImageIO.read(file);
+                if (image == null) {
+                    continue;
+                }
+                samples.add(new Sample(file.getName(), reason, evaluate(image, config)));
+            }
+        }
+        assertFalse("No images under " + samplesDir, samples.isEmpty());
+
+        Map<ImageQualityGate.Reason, int[]> confusion = new EnumMap<>(ImageQualityGate.Reason.class);
+        int agreed = 0;
+        int usable = 0;
+        int falseRejects = 0;
+        JSONArray mismatches = new JSONArray();
+        for (Sample sample : samples) {
+            confusion.computeIfAbsent(sample.expected, r -> new int[ImageQualityGate.Reason.values().length])
+                    [sample.verdict.reason.ordinal()]++;
+            if (sample.expected == sample.verdict.reason) {
+                agreed++;
+            } else {
+                mismatches.put(sample.expected.name().toLowerCase(Locale.US) + "/" + sample.name + ": " + sample.verdict);
+            }
+            if (sample.expected == ImageQualityGate.Reason.OK) {
+                usable++;
+                if (!sample.verdict.isUsable()) {
+                    falseRejects++;
+                }
+            }
+        }
+
+        JSONObject report = new JSONObject();
+        report.put("samples", samples.size());
+        report.put("agreement", (double) agreed / samples.size());
+        report.put("falseRejectRate", usable == 0 ? 0 : (double) falseRejects / usable);
+        JSONObject matrix = new JSONObject();
+        for (Map.Entry<ImageQualityGate.Reason, int[]> entry : confusion.entrySet()) {
+            JSONObject row = new JSONObject();
+            for (ImageQualityGate.Reason reason : ImageQualityGate.Reason.values()) {
+                row.put(reason.name(), entry.getValue()[reason.ordinal()]);
+            }
+            matrix.put(entry.getKey().name(), row);
+        }
+        report.put("confusion", matrix);
+
+        // Thresholds that keep false rejects of usable photos under MAX_FALSE_REJECT_RATE
+        JSONObject suggested = new JSONObject();
+        float[] ok = metric(samples, ImageQualityGate.Reason.OK, 0);
+        if (ok.length > 0) {
+            suggested.put("minBrightness", percentile(ok, MAX_FALSE_REJECT_RATE));
+            suggested.put("maxBrightness", percentile(ok, 1 - MAX_FALSE_REJECT_RATE));
+            suggested.put("maxClippedFraction", percentile(metric(samples, ImageQualityGate.Reason.OK, 1), 1 - MAX_FALSE_REJECT_RATE));
+            suggested.put("minLeafFraction", percentile(metric(samples, ImageQualityGate.Reason.OK, 2), MAX_FALSE_REJECT_RATE));
+            suggested.put("minSharpness", percentile(metric(samples, ImageQualityGate.Reason.OK, 3), MAX_FALSE_REJECT_RATE));
+        }
+        report.put("suggested", suggested);
+        report.put("mismatches", mismatches);
+
+        File directory = new File(System.getProperty("quality.outputDir", "build/reports/quality-gate"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File file = new File(directory, "QualityGateValidation.json");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(report.toString(2).getBytes(StandardCharsets.UTF_8));
+        }
+        System.out.printf(Locale.US, "%d samples, agreement %.3f, false rejects %d/%d%n",
+                samples.size(), (double) agreed / samples.size(), falseRejects, usable);
+        System.out.println("Wrote " + file.getAbsolutePath());
+    }
+
+    // Same downsample the app takes: long side to analysisSize, bilinear
+    private static ImageQualityGate.Verdict evaluate(BufferedImage image, ImageQualityGate.Config config) {
+        float scale = Math.min(1f, (float) config.analysisSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, Math.round(image.getWidth() * scale));
+        int height = Math.max(1, Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        int[] pixels = scaled.getRGB(0, 0, width, height, null, 0, width);
+        return ImageQualityGate.evaluate(pixels, width, height, config);
+    }
+
+    private static float[] metric(List<Sample> samples, ImageQualityGate.Reason expected, int index) {
+        List<Float> values = new ArrayList<>();
+        for (Sample sample : samples) {
+            if (sample.expected != expected) {
+                continue;
+            }
+            ImageQualityGate.Verdict verdict = sample.verdict;
+            float[] metrics = {verdict.brightness, verdict.clippedFraction, verdict.leafFraction, verdict.sharpness};
+            values.add(metrics[index]);
+        }
+        float[] result = new float[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static double percentile(float[] sorted, double fraction) {
+        int index = (int) Math.floor(fraction * (sorted.length - 1));
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
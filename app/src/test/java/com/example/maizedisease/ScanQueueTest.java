@@ -0,0 +1,99 @@
+package com.example.maizedisease;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanQueueTest {
+
+    private static final String[] LABELS = {"Blight", "Common Rust", "Gray Leaf Spot", "Healthy"};
+    private static final byte[] IMAGE = {1, 2, 3, 4};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void nextPending_returnsOldestFirstUpToMax() throws IOException {
+        ScanQueue queue = new ScanQueue(folder.getRoot());
+        String first = queue.enqueue(IMAGE);
+        String second = queue.enqueue(IMAGE);
+        queue.enqueue(IMAGE);
+
+        List<ScanQueue.Entry> batch = queue.nextPending(2);
+
+        assertEquals(2, batch.size());
+        assertEquals(first, batch.get(0).id);
+        assertEquals(second, batch.get(1).id);
+    }
+
+    @Test
+    public void entriesAndResultsSurviveRestart() throws IOException {
+        ScanQueue queue = new ScanQueue(folder.getRoot());
+        String done = queue.enqueue(IMAGE);
+        String failed = queue.enqueue(IMAGE);
+        String pending = queue.enqueue(IMAGE);
+        queue.markDone(done, ClassificationResult.fromScores(new float[]{0.05f, 0.9f, 0.03f, 0.02f}, LABELS, 1));
+        queue.markFailed(failed, "Could not decode image");
+
+        ScanQueue restarted = new ScanQueue(folder.getRoot());
+        List<ScanQueue.Entry> entries = restarted.getEntries();
+
+        assertEquals(3, entries.size());
+        assertEquals(ScanQueue.Status.DONE, entries.get(0).status);
+        assertEquals("Common Rust", entries.get(0).label);
+        assertEquals(0.9f, entries.get(0).score, 1e-6f);
+        assertEquals(ScanQueue.Status.FAILED, entries.get(1).status);
+        assertEquals("Could not decode image", entries.get(1).error);
+        assertEquals(pending, restarted.nextPending(10).get(0).id);
+        assertTrue(restarted.getImageFile(entries.get(2)).exists());
+    }
+
+    @Test
+    public void removeFinished_keepsPendingAndDeletesImages() throws IOException {
+        ScanQueue queue = new ScanQueue(folder.getRoot());
+        String done = queue.enqueue(IMAGE);
+        queue.enqueue(IMAGE);
+        ScanQueue.Entry doneEntry = queue.nextPending(1).get(0);
+        queue.markFailed(done, "error");
+
+        queue.removeFinished();
+
+        assertEquals(1, queue.getEntries().size());
+        assertFalse(queue.getImageFile(doneEntry).exists());
+        assertEquals(1, new ScanQueue(folder.getRoot()).getEntries().size());
+    }
+
+    @Test
+    public void orphanedFilesAreCleanedUpOnLoad() throws IOException {
+        new ScanQueue(folder.getRoot()).enqueue(IMAGE);
+        File orphan = new File(folder.getRoot(), "written-before-crash.png");
+        File partial = new File(folder.getRoot(), "manifest.json.tmp");
+        assertTrue(orphan.createNewFile());
+        assertTrue(partial.createNewFile());
+
+        ScanQueue restarted = new ScanQueue(folder.getRoot());
+
+        assertEquals(1, restarted.getEntries().size());
+        assertFalse(orphan.exists());
+        assertFalse(partial.exists());
+    }
+
+    @Test
+    public void listenersHearEveryChange() throws IOException {
+        ScanQueue queue = new ScanQueue(folder.getRoot());
+        int[] changes = {0};
+        queue.addListener(() -> changes[0]++);
+
+        String id = queue.enqueue(IMAGE);
+        queue.markFailed(id, "error");
+        queue.removeFinished();
+
+        assertEquals(3, changes[0]);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.maizedisease;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Emits flat grey YUV frames at a fixed rate on its own thread, counting how many get closed
+class SyntheticFrameSource implements FrameSource {
+
+    private final int width;
+    private final int height;
+    private final long intervalMillis;
+    private final AtomicInteger emitted = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private volatile boolean running;
+    private Thread thread;
+
+    SyntheticFrameSource(int width, int height, long intervalMillis) {
+        this.width = width;
+        this.height = height;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        running = true;
+        thread = new Thread(() -> {
+            while (running) {
+                listener.onFrame(newFrame());
+                emitted.incrementAndGet();
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "synthetic-frames");
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getEmitted() {
+        return emitted.get();
+    }
+
+    int getClosed() {
+        return closed.get();
+    }
+
+    static CameraFrame grayFrame(int width, int height, Runnable onClose) {
+        ByteBuffer y = ByteBuffer.allocate(width * height);
+        ByteBuffer u = ByteBuffer.allocate(width * height / 4);
+        ByteBuffer v = ByteBuffer.allocate(width * height / 4);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) 128);
+        }
+        for (int i = 0; i < u.capacity(); i++) {
+            u.put(i, (byte) 128);
+            v.put(i, (byte) 128);
+        }
+        return new CameraFrame(width, height, y, u, v, width, width / 2, 1, 0, System.nanoTime(), onClose);
+    }
+
+    private CameraFrame newFrame() {
+        return grayFrame(width, height, closed::incrementAndGet);
+    }
+}
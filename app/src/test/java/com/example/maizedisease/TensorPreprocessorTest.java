@@ -0,0 +1,60 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TensorPreprocessorTest {
+
+    @Test
+    public void convertPixels_doesNotAllocateAfterWarmUp() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int[] pixels = randomPixels(7);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TensorPreprocessor.INPUT_BYTES).order(ByteOrder.nativeOrder());
+
+        int iterations = 200;
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            TensorPreprocessor.convertPixels(pixels, pixels.length, buffer);
+        }
+        threadBean.getThreadAllocatedBytes(threadId);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            TensorPreprocessor.convertPixels(pixels, pixels.length, buffer);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Less than one byte per call means nothing is allocated per image
+        assertTrue("allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    @Test
+    public void quantizePixels_appliesScaleAndZeroPoint() {
+        int[] pixels = {0xFF000000, 0xFFFF8001};
+        ByteBuffer uint8 = ByteBuffer.allocate(6);
+        TensorPreprocessor.quantizePixels(pixels, pixels.length, uint8, 1f, 0, false);
+        assertArrayEquals(new byte[]{0, 0, 0, (byte) 255, (byte) 128, 1}, uint8.array());
+
+        ByteBuffer int8 = ByteBuffer.allocate(6);
+        TensorPreprocessor.quantizePixels(pixels, pixels.length, int8, 1f, -128, true);
+        assertArrayEquals(new byte[]{-128, -128, -128, 127, 0, -127}, int8.array());
+    }
+
+    private static int[] randomPixels(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[TensorPreprocessor.INPUT_PIXELS];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}
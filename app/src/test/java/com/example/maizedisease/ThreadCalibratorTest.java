@@ -0,0 +1,29 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThreadCalibratorTest {
+
+    @Test
+    public void candidateThreadCounts_singleCoreTriesOnlyOne() {
+        assertArrayEquals(new int[]{1}, ThreadCalibrator.candidateThreadCounts(1));
+    }
+
+    @Test
+    public void candidateThreadCounts_dropsDuplicateCoreCount() {
+        assertArrayEquals(new int[]{1, 2}, ThreadCalibrator.candidateThreadCounts(2));
+        assertArrayEquals(new int[]{1, 2, 4}, ThreadCalibrator.candidateThreadCounts(4));
+    }
+
+    @Test
+    public void candidateThreadCounts_clampsToCoreCount() {
+        assertArrayEquals(new int[]{1, 2, 3}, ThreadCalibrator.candidateThreadCounts(3));
+    }
+
+    @Test
+    public void candidateThreadCounts_addsAllCoresOnLargerDevices() {
+        assertArrayEquals(new int[]{1, 2, 4, 8}, ThreadCalibrator.candidateThreadCounts(8));
+    }
+}
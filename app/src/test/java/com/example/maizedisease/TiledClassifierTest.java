@@ -0,0 +1,54 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TiledClassifierTest {
+
+    @Test
+    public void planTiles_coversImageWithOverlapCentreFirst() {
+        List<int[]> tiles = TiledClassifier.planTiles(1536, 1152, 256, 0.25f);
+
+        // 1280 / 192 -> 7 steps, 896 / 192 -> 5 steps
+        assertEquals(8 * 6, tiles.size());
+        int maxRight = 0;
+        int maxBottom = 0;
+        for (int[] tile : tiles) {
+            maxRight = Math.max(maxRight, tile[0] + 256);
+            maxBottom = Math.max(maxBottom, tile[1] + 256);
+        }
+        assertEquals(1536, maxRight);
+        assertEquals(1152, maxBottom);
+
+        int[] first = tiles.get(0);
+        int[] last = tiles.get(tiles.size() - 1);
+        assertTrue(Math.abs(first[0] - 640) <= 192 && Math.abs(first[1] - 448) <= 192);
+        assertTrue(last[0] == 0 || last[0] == 1280);
+    }
+
+    @Test
+    public void planTiles_emptyWhenImageSmallerThanTile() {
+        assertTrue(TiledClassifier.planTiles(200, 800, 256, 0.25f).isEmpty());
+    }
+
+    @Test
+    public void combine_meanAveragesProbabilities() {
+        float[] combined = TiledClassifier.combine(Arrays.asList(
+                new float[]{0.8f, 0.2f}, new float[]{0.4f, 0.6f}), TiledClassifier.Aggregation.MEAN);
+
+        assertArrayEquals(new float[]{0.6f, 0.4f}, combined, 1e-6f);
+    }
+
+    @Test
+    public void combine_voteCountsTopClasses() {
+        float[] combined = TiledClassifier.combine(Arrays.asList(
+                new float[]{0.8f, 0.2f}, new float[]{0.4f, 0.6f}, new float[]{0.1f, 0.9f},
+                new float[]{0.3f, 0.7f}), TiledClassifier.Aggregation.VOTE);
+
+        assertArrayEquals(new float[]{0.25f, 0.75f}, combined, 1e-6f);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.maizedisease;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class YuvConverterTest {
+
+    @Test
+    public void neutralChromaGivesGray() {
+        assertEquals(0xFF808080, YuvConverter.yuvToArgb(128, 0, 0));
+        assertEquals(0xFF000000, YuvConverter.yuvToArgb(0, 0, 0));
+        assertEquals(0xFFFFFFFF, YuvConverter.yuvToArgb(255, 0, 0));
+    }
+
+    @Test
+    public void saturatedChromaClamps() {
+        int red = YuvConverter.yuvToArgb(76, -43, 127);
+        assertTrue(((red >> 16) & 0xFF) > 240);
+        assertTrue((red & 0xFF) < 16);
+    }
+
+    @Test
+    public void scalesWholeLandscapeFrame() {
+        int width = 80;
+        int height = 40;
+        CameraFrame frame = SyntheticFrameSource.grayFrame(width, height, null);
+        // Left quarter black; like the gallery scale, it must stay the left quarter of the output
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width / 4; col++) {
+                frame.yPlane.put(row * width + col, (byte) 0);
+            }
+        }
+
+        int[] out = new int[16 * 16];
+        new YuvConverter().toArgb(frame, out, 16);
+
+        for (int oy = 0; oy < 16; oy++) {
+            for (int ox = 0; ox < 16; ox++) {
+                assertEquals(ox < 4 ? 0xFF000000 : 0xFF808080, out[oy * 16 + ox]);
+            }
+        }
+    }
+
+    @Test
+    public void turnsFrameUprightBySensorRotation() {
+        int width = 80;
+        int height = 40;
+        CameraFrame gray = SyntheticFrameSource.grayFrame(width, height, null);
+        // Top quarter of the sensor image black
+        for (int row = 0; row < height / 4; row++) {
+            for (int col = 0; col < width; col++) {
+                gray.yPlane.put(row * width + col, (byte) 0);
+            }
+        }
+        CameraFrame frame = new CameraFrame(width, height, gray.yPlane, gray.uPlane, gray.vPlane,
+                gray.yRowStride, gray.uvRowStride, gray.uvPixelStride, 90, gray.timestampNanos, null);
+
+        int[] out = new int[16 * 16];
+        new YuvConverter().toArgb(frame, out, 16);
+
+        // Turned 90 degrees clockwise, the sensor's top edge is the right edge
+        for (int oy = 0; oy < 16; oy++) {
+            for (int ox = 0; ox < 16; ox++) {
+                assertEquals(ox >= 12 ? 0xFF000000 : 0xFF808080, out[oy * 16 + ox]);
+            }
+        }
+    }
+}